@@ -0,0 +1,135 @@
+package at.jku.risc.stout.aau.benchmarks;
+
+import at.jku.risc.stout.aau.AlgorithmTest;
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
+import at.jku.risc.stout.aau.impl.Parser;
+import at.jku.risc.stout.aau.impl.Substitution;
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
+import at.jku.risc.stout.aau.term.Term;
+import at.jku.risc.stout.aau.term.TermFactory;
+import at.jku.risc.stout.aau.term.VariableTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the building blocks the {@linkplain at.jku.risc.stout.aau.impl.Algorithm} spends most of its time in.
+ * <br><br>
+ * The inputs are derived from {@linkplain AlgorithmTest#bigEquation()} and {@linkplain AlgorithmTest#bigRelations()},
+ * and each benchmark processes a whole batch of them per invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.properties")
+public class ComponentBenchmark {
+    /**
+     * Length of the substitution chain, see {@linkplain ComponentBenchmark#applyAll()}
+     */
+    @Param({"15", "255"})
+    public int substitutions;
+    
+    private String termString;
+    private CompiledFuzzySystem fuzzySystem;
+    private List<ArraySet<GroundishTerm>> termSets;
+    private List<Pair<ArraySet<Integer>, ArraySet<Integer>>> mergeInputs;
+    private List<Substitution> chain;
+    
+    @Setup
+    public void setup() {
+        termString = AlgorithmTest.bigEquation().split("\\?=")[0].trim();
+        
+        Pair<GroundTerm, GroundTerm> equation = Parser.parseEquation(AlgorithmTest.bigEquation());
+        fuzzySystem = new CompiledFuzzySystem(Parser.parseProximityRelations(AlgorithmTest.bigRelations()), 0.5f);
+        // every pair of sub-terms from both sides, like the AUTs of the main loop
+        // (symbols outside the relations are only close to themselves, which the problem's view answers before asking the compiled system)
+        termSets = new ArrayList<>();
+        for (GroundTerm l : subTerms(equation.left)) {
+            for (GroundTerm r : subTerms(equation.right)) {
+                if (fuzzySystem.contains(l.symbol()) && fuzzySystem.contains(r.symbol())) {
+                    termSets.add(new ArraySet<>(l, r));
+                }
+            }
+        }
+        
+        // pairs of sets with different sizes and overlaps
+        mergeInputs = new ArrayList<>();
+        for (int size = 1; size <= 32; size *= 2) {
+            for (int overlap = 0; overlap <= size; overlap += Math.max(1, size / 2)) {
+                mergeInputs.add(Pair.of(range(0, size), range(size - overlap, 2 * size - overlap)));
+            }
+        }
+        
+        // complete binary tree of substitutions, where variable i maps to f(2i+1, 2i+2), and the leaves to a()
+        int f = SymbolTable.id("f");
+        int a = SymbolTable.id("a");
+        chain = new ArrayList<>(substitutions);
+        for (int var = 0; var < substitutions; var++) {
+            Term substitute = 2 * var + 2 < substitutions
+                    ? TermFactory.functionTerm(f, Arrays.asList(new VariableTerm(2 * var + 1), new VariableTerm(2 * var + 2)))
+                    : TermFactory.groundishTerm(a, new ArrayList<>());
+            chain.add(new Substitution(var, substitute));
+        }
+    }
+    
+    @Benchmark
+    public void commonProximates(Blackhole blackhole) {
+        for (ArraySet<GroundishTerm> terms : termSets) {
+            blackhole.consume(fuzzySystem.commonProximates(terms));
+        }
+    }
+    
+    @Benchmark
+    public GroundTerm parseTerm() {
+        return Parser.parseTerm(termString);
+    }
+    
+    @Benchmark
+    public void merged(Blackhole blackhole) {
+        for (Pair<ArraySet<Integer>, ArraySet<Integer>> input : mergeInputs) {
+            blackhole.consume(ArraySet.merged(input.left, input.right));
+        }
+    }
+    
+    @Benchmark
+    public Term applyAll() {
+        return Substitution.applyAll(chain, VariableTerm.VAR_0);
+    }
+    
+    private static List<GroundTerm> subTerms(GroundTerm term) {
+        List<GroundTerm> subTerms = new ArrayList<>();
+        subTerms.add(term);
+        for (GroundTerm argument : term.arguments()) {
+            subTerms.addAll(subTerms(argument));
+        }
+        return subTerms;
+    }
+    
+    private static ArraySet<Integer> range(int from, int to) {
+        List<Integer> elements = new ArrayList<>();
+        for (int idx = from; idx < to; idx++) {
+            elements.add(idx);
+        }
+        return ArraySet.of(elements, true);
+    }
+}
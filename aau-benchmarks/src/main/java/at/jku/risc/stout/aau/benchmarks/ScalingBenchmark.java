@@ -0,0 +1,58 @@
+package at.jku.risc.stout.aau.benchmarks;
+
+import at.jku.risc.stout.aau.FuzzySystem;
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.WorkloadGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves batches of {@linkplain WorkloadGenerator generated} problems, to get scaling curves over
+ * term depth, alphabet size, proximity class size and restriction type.
+ * <br><br>
+ * The seed is fixed, so each parameter combination always solves the same problems.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.properties")
+public class ScalingBenchmark {
+    @Param({"1", "2", "3"})
+    public int depth;
+    
+    @Param({"10", "50"})
+    public int alphabet;
+    
+    @Param({"2", "4"})
+    public int classSize;
+    
+    @Param({"CORRESPONDENCE_MAPPING", "CORRESPONDENCE", "MAPPING", "UNRESTRICTED"})
+    public FuzzySystem.RestrictionType restriction;
+    
+    @Param({"10"})
+    public int problems;
+    
+    @Param({"42"})
+    public long seed;
+    
+    private List<WorkloadGenerator.Workload> workloads;
+    
+    @Setup
+    public void setup() {
+        workloads = new WorkloadGenerator(seed).alphabet(alphabet).depth(depth).classSize(classSize).restriction(restriction)
+                .generate(problems);
+    }
+    
+    @Benchmark
+    public void solve(Blackhole blackhole) {
+        for (WorkloadGenerator.Workload workload : workloads) {
+            Problem problem = workload.problem().lambda(0.5f).witnesses(false);
+            blackhole.consume(problem.solve());
+        }
+    }
+}
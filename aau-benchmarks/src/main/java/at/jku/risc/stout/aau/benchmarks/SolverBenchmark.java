@@ -0,0 +1,96 @@
+package at.jku.risc.stout.aau.benchmarks;
+
+import at.jku.risc.stout.aau.AlgorithmTest;
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.ProximityRelation;
+import at.jku.risc.stout.aau.Solution;
+import at.jku.risc.stout.aau.impl.Parser;
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.tnorm.CommonTNorms;
+import at.jku.risc.stout.aau.tnorm.TNorm;
+import at.jku.risc.stout.aau.util.Pair;
+import at.jku.risc.stout.aau.util.Panic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves the small, medium and big problems of {@linkplain AlgorithmTest} end to end,
+ * for each combination of λ-cut, {@linkplain CommonTNorms t-norm} and the merge / witnesses settings.
+ * <br><br>
+ * The equation and relations are parsed once up front, so only the {@linkplain at.jku.risc.stout.aau.impl.Algorithm} is measured
+ * (including compiling the relations, which every solve does).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.properties")
+public class SolverBenchmark {
+    @Param({"small", "medium", "big"})
+    public String problem;
+    
+    @Param({"0.5", "0.8"})
+    public float lambda;
+    
+    @Param({"minimum", "product", "lukasiewicz", "drastic", "nilpotentMinimum", "hamacherProduct"})
+    public String tNorm;
+    
+    @Param({"true", "false"})
+    public boolean merge;
+    
+    @Param({"true", "false"})
+    public boolean witnesses;
+    
+    private Pair<GroundTerm, GroundTerm> equation;
+    private Set<ProximityRelation> relations;
+    private TNorm tNormFunction;
+    
+    @Setup
+    public void setup() {
+        switch (problem) {
+            case "small":
+                equation = Parser.parseEquation(AlgorithmTest.smallEquation());
+                relations = Parser.parseProximityRelations(AlgorithmTest.smallRelations());
+                break;
+            case "medium":
+                equation = Parser.parseEquation(AlgorithmTest.mediumEquation());
+                relations = Parser.parseProximityRelations(AlgorithmTest.mediumRelations());
+                break;
+            case "big":
+                equation = Parser.parseEquation(AlgorithmTest.bigEquation());
+                relations = Parser.parseProximityRelations(AlgorithmTest.bigRelations());
+                break;
+            default:
+                throw Panic.arg("Unknown problem '%s'", problem);
+        }
+        tNormFunction = tNorm(tNorm);
+    }
+    
+    @Benchmark
+    public Set<Solution> solve() {
+        return new Problem(equation).proximityRelations(relations).lambda(lambda).tNorm(tNormFunction)
+                .merge(merge).witnesses(witnesses).solve();
+    }
+    
+    private static TNorm tNorm(String name) {
+        switch (name) {
+            case "minimum":
+                return CommonTNorms.minimum;
+            case "product":
+                return CommonTNorms.product;
+            case "lukasiewicz":
+                return CommonTNorms.lukasiewicz;
+            case "drastic":
+                return CommonTNorms.drastic;
+            case "nilpotentMinimum":
+                return CommonTNorms.nilpotentMinimum;
+            case "hamacherProduct":
+                return CommonTNorms.hamacherProduct;
+            default:
+                throw Panic.arg("Unknown t-norm '%s'", name);
+        }
+    }
+}
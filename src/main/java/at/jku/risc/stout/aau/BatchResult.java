@@ -0,0 +1,58 @@
+package at.jku.risc.stout.aau;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The output of {@linkplain Problems#solveAllDetailed(java.util.Collection, java.util.concurrent.Executor)}:
+ * the {@linkplain SolveResult} of each problem, and how long the whole batch took.
+ */
+public class BatchResult {
+    /**
+     * The result of each problem, in the order they were passed in
+     */
+    public final List<SolveResult> results;
+    /**
+     * Wall clock time from submitting the first problem until all of them were done
+     */
+    public final Duration elapsed;
+    /**
+     * How many {@linkplain at.jku.risc.stout.aau.impl.CompiledFuzzySystem CompiledFuzzySystems} were compiled for the batch,
+     * and shared between its problems
+     */
+    public final int sharedFuzzySystems;
+    
+    public BatchResult(List<SolveResult> results, Duration elapsed, int sharedFuzzySystems) {
+        this.results = results;
+        this.elapsed = elapsed;
+        this.sharedFuzzySystems = sharedFuzzySystems;
+    }
+    
+    public int problemCount() {
+        return results.size();
+    }
+    
+    /**
+     * @return the batch's throughput, in solved problems per second
+     */
+    public double throughput() {
+        return problemCount() / (elapsed.toNanos() / 1e9);
+    }
+    
+    /**
+     * @return the combined {@linkplain SolveStats} of all problems (see {@linkplain SolveStats#sum(java.util.Collection)})
+     */
+    public SolveStats stats() {
+        SolveStats sum = SolveStats.EMPTY;
+        for (SolveResult result : results) {
+            sum = sum.plus(result.stats);
+        }
+        return sum;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s problems in %.3f s (%.1f problems/s), sharing %s compiled fuzzy systems",
+                problemCount(), elapsed.toNanos() / 1e9, throughput(), sharedFuzzySystems);
+    }
+}
@@ -0,0 +1,30 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.term.Term;
+
+/**
+ * Read-only view of one branch of the {@linkplain at.jku.risc.stout.aau.impl.Algorithm Algorithm's} main loop,
+ * as passed to a {@linkplain SolverListener}.
+ * <br><br>
+ * The branch may keep changing after the event, so the view is only meaningful while the listener is being called.
+ */
+public interface ConfigView {
+    /**
+     * The generalization so far - the variables are either still open or already solved AUTs.
+     */
+    Term generalization();
+    
+    float alpha1();
+    
+    float alpha2();
+    
+    /**
+     * @return the number of AUTs which might still be generalized further
+     */
+    int openAUTs();
+    
+    /**
+     * @return the number of fully generalized AUTs
+     */
+    int solvedAUTs();
+}
@@ -2,6 +2,7 @@ package at.jku.risc.stout.aau;
 
 import at.jku.risc.stout.aau.impl.Algorithm;
 import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
 import at.jku.risc.stout.aau.util.ArraySet;
 
 import java.util.Collections;
@@ -17,6 +18,9 @@ import java.util.List;
  *     <li> function arities
  *     <li> the relations' overall restriction type
  * </ul>
+ * The {@linkplain Algorithm} itself only uses the <b>int</b> based methods, which work on {@linkplain SymbolTable} ids.
+ * By default, they delegate to their String based counterparts,
+ * so a custom implementation only has to override them if it wants to avoid that translation.
  */
 public interface FuzzySystem {
     
@@ -26,6 +30,34 @@ public interface FuzzySystem {
     
     int arity(String f);
     
+    default ProximityRelation proximityRelation(int f, int g) {
+        return proximityRelation(SymbolTable.name(f), SymbolTable.name(g));
+    }
+    
+    /**
+     * Same as {@linkplain FuzzySystem#commonProximates(ArraySet)}, but as {@linkplain SymbolTable} ids.
+     * <br>
+     * The returned array must not be modified.
+     */
+    default int[] commonProximateSymbols(ArraySet<GroundishTerm> f) {
+        return commonProximates(f).stream().mapToInt(SymbolTable::id).toArray();
+    }
+    
+    default int arity(int f) {
+        return arity(SymbolTable.name(f));
+    }
+    
+    /**
+     * Whether the functions/constants 'f' and 'g' ({@linkplain SymbolTable} ids) have at least one common proximate.
+     * <br>
+     * The {@linkplain Algorithm} uses this to reject inconsistent sets of terms early,
+     * before running the full consistency check on them. So it may only return <b>false</b> if there really is no common proximate,
+     * but the default of always returning <b>true</b> is fine (it just disables the shortcut).
+     */
+    default boolean compatible(int f, int g) {
+        return true;
+    }
+    
     RestrictionType restrictionType();
     
     default RestrictionType practicalRestrictionType() {
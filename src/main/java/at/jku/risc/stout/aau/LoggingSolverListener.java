@@ -0,0 +1,93 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.util.ANSI;
+import at.jku.risc.stout.aau.util.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * {@linkplain SolverListener} which logs the events as text:
+ * the problem and the solutions at <b>info</b> level, and the individual steps at <b>debug</b> level.
+ * <br>
+ * Each message is only built if its level is enabled.
+ */
+public class LoggingSolverListener implements SolverListener {
+    private final Logger log = LoggerFactory.getLogger(LoggingSolverListener.class);
+    
+    @Override
+    public void solving(GroundTerm lhs, GroundTerm rhs, float lambda, FuzzySystem fuzzySystem) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        log.info(ANSI.yellow("SOLVING: ") + lhs + ANSI.yellow(" == ") + rhs + ANSI.yellow(" λ=", lambda));
+        
+        if (log.isDebugEnabled()) {
+            log.debug(Data.log(ANSI.yellow("R:"), fuzzySystem.fullView()));
+        } else {
+            log.info(ANSI.yellow("R (compact): ") + Data.str(fuzzySystem.compactView()));
+        }
+        
+        if (fuzzySystem.restrictionType() == fuzzySystem.practicalRestrictionType()) {
+            log.info("The problem is of type {}.", ANSI.blue(fuzzySystem.restrictionType()));
+        } else {
+            log.info("The problem is in theory of type {}. But excluding relations below the λ-cut, it is of type {}.",
+                    ANSI.blue(fuzzySystem.restrictionType()),
+                    ANSI.blue(fuzzySystem.practicalRestrictionType()));
+        }
+        log.info(fuzzySystem.practicalRestrictionType().correspondence ?
+                "Therefore, we get the minimal complete set of generalizations." :
+                "Therefore, we are not guaranteed to get the minimal complete set of generalizations.");
+    }
+    
+    @Override
+    public void trivial(ConfigView cfg) {
+        log.debug("TRI => {}", cfg);
+    }
+    
+    @Override
+    public void decomposed(Collection<? extends ConfigView> children) {
+        if (log.isDebugEnabled()) {
+            log.debug("DEC => {}", Data.str(children));
+        }
+    }
+    
+    @Override
+    public void solved(ConfigView cfg) {
+        log.debug("SOL => {}", cfg);
+    }
+    
+    @Override
+    public void linear(ConfigView cfg) {
+        log.debug("LIN => {}", cfg);
+    }
+    
+    @Override
+    public void expanded(ConfigView cfg) {
+        log.debug("EXP => {}", cfg);
+    }
+    
+    @Override
+    public void merged(ConfigView cfg) {
+        log.debug("MER => {}", cfg);
+    }
+    
+    @Override
+    public void solution(Solution solution) {
+        log.debug("SOLUTION => {}", solution);
+    }
+    
+    @Override
+    public void finished(SolveResult result) {
+        if (log.isInfoEnabled()) {
+            log.info(Data.log(ANSI.yellow("SOLUTIONS:"), result.solutions));
+        }
+        if (!result.isComplete()) {
+            log.warn("Reached limit [{}] after {} solutions, the solutions are incomplete", result.limitReached, result.solutions.size());
+        }
+        log.info("Stats: {}", result.stats);
+        log.info("██");
+    }
+}
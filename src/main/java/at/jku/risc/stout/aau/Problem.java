@@ -1,6 +1,7 @@
 package at.jku.risc.stout.aau;
 
 import at.jku.risc.stout.aau.impl.Algorithm;
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
 import at.jku.risc.stout.aau.impl.Parser;
 import at.jku.risc.stout.aau.term.GroundTerm;
 import at.jku.risc.stout.aau.tnorm.CommonTNorms;
@@ -8,7 +9,11 @@ import at.jku.risc.stout.aau.tnorm.TNorm;
 import at.jku.risc.stout.aau.util.Pair;
 import at.jku.risc.stout.aau.util.Panic;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 /**
  * For a given anti-unification problem, create a {@linkplain Problem} object, and call
@@ -19,9 +24,18 @@ public class Problem {
     private Collection<ProximityRelation> proximityRelations = new HashSet<>();
     private Map<String, Integer> definedArities = new HashMap<>();
     private FuzzySystem customFuzzySystem = null;
+    private CompiledFuzzySystem compiledFuzzySystem = null;
     private float lambda = 1.0f;
     private TNorm tNorm = CommonTNorms.minimum;
     private boolean merge = true, witnesses = true;
+    private int parallelism = 1;
+    private SearchStrategy searchStrategy = SearchStrategy.BREADTH_FIRST;
+    private int topK = 0;
+    private Executor postProcessing = null;
+    private SolverListener listener = SolverListener.NONE;
+    private Duration timeLimit = null;
+    private long maxConfigs = Long.MAX_VALUE, maxStates = Long.MAX_VALUE;
+    private BooleanSupplier cancellation = null;
     
     // *** constructors ***
     
@@ -95,6 +109,34 @@ public class Problem {
         return Algorithm.solve(this);
     }
     
+    /**
+     * Same as {@linkplain Problem#solve()}, but doesn't fail if one of the problem's limits is reached
+     * ({@linkplain Problem#timeLimit(Duration)}, {@linkplain Problem#maxConfigs(long)}, {@linkplain Problem#maxStates(long)},
+     * {@linkplain Problem#cancellation(BooleanSupplier)}).
+     * <br>
+     * Instead, the result contains the solutions which were completed by then, and is marked as incomplete.
+     *
+     * @return the (possibly incomplete) set of {@linkplain Solution}s to the defined problem
+     */
+    public SolveResult solveDetailed() {
+        return Algorithm.solveDetailed(this);
+    }
+    
+    /**
+     * Lazily run the {@linkplain Algorithm} with the defined problem and its current settings.
+     * <br><br>
+     * Each {@linkplain Solution} is post processed and emitted as soon as its branch of the algorithm is done,
+     * so the first solutions are available early, and the remaining work is skipped if the stream isn't consumed fully.
+     * <br>
+     * The stream produces the same solutions as {@linkplain Problem#solve()}, but runs sequentially regardless of
+     * {@linkplain Problem#parallelism(int)}.
+     *
+     * @return a stream of the possible {@linkplain Solution}s to the defined problem
+     */
+    public Stream<Solution> solveStream() {
+        return Algorithm.solveStream(this);
+    }
+    
     // *** additional parameters ***
     
     /**
@@ -135,8 +177,8 @@ public class Problem {
      * </code>
      */
     public Problem proximityRelations(String relations) {
-        if (customFuzzySystem != null) {
-            throw Panic.arg("Ambiguous problem definition: cannot define both a custom fuzzy system and proximity relations or arities.");
+        if (customFuzzySystem != null || compiledFuzzySystem != null) {
+            throw Panic.arg("Ambiguous problem definition: cannot define both a custom/compiled fuzzy system and proximity relations or arities.");
         }
         return proximityRelations(Parser.parseProximityRelations(relations));
     }
@@ -151,8 +193,8 @@ public class Problem {
      * This is usually unnecessary, except in the case described in the README section on arities.
      */
     public Problem arities(Map<String, Integer> arities) {
-        if (customFuzzySystem != null) {
-            throw Panic.arg("Ambiguous problem definition: cannot define both a custom fuzzy system and proximity relations or arities.");
+        if (customFuzzySystem != null || compiledFuzzySystem != null) {
+            throw Panic.arg("Ambiguous problem definition: cannot define both a custom/compiled fuzzy system and proximity relations or arities.");
         }
         this.definedArities = arities;
         return this;
@@ -171,7 +213,7 @@ public class Problem {
      * and {@linkplain Problem#arities(Map) arities} no longer make sense as inputs.
      */
     public Problem customFuzzySystem(FuzzySystem customFuzzySystem) {
-        if (!proximityRelations.isEmpty() || !definedArities.isEmpty()) {
+        if (!proximityRelations.isEmpty() || !definedArities.isEmpty() || compiledFuzzySystem != null) {
             throw Panic.arg("Ambiguous problem definition: cannot define both a custom fuzzy system and proximity relations or arities.");
         }
         this.customFuzzySystem = customFuzzySystem;
@@ -182,6 +224,30 @@ public class Problem {
         return customFuzzySystem;
     }
     
+    /**
+     * Provide proximity relations and arities which were compiled ahead of time.
+     * <br>
+     * This is useful when solving many problems against the same relations,
+     * since the relations are then only validated and compiled once.
+     * <br><br>
+     * The problem's terms are still checked against the compiled system, and may also use symbols which aren't part of it.
+     * The problem's {@linkplain Problem#lambda(float) λ-cut} must not be lower than the one the system was compiled with.
+     * <br><br>
+     * If a compiled fuzzy system is provided, {@linkplain Problem#proximityRelations(Collection) proximityRelations}
+     * and {@linkplain Problem#arities(Map) arities} no longer make sense as inputs.
+     */
+    public Problem compiledFuzzySystem(CompiledFuzzySystem compiledFuzzySystem) {
+        if (!proximityRelations.isEmpty() || !definedArities.isEmpty() || customFuzzySystem != null) {
+            throw Panic.arg("Ambiguous problem definition: cannot define both a compiled fuzzy system and proximity relations, arities or a custom fuzzy system.");
+        }
+        this.compiledFuzzySystem = compiledFuzzySystem;
+        return this;
+    }
+    
+    public CompiledFuzzySystem getCompiledFuzzySystem() {
+        return compiledFuzzySystem;
+    }
+    
     /**
      * Define the lambda-cut within the range [0,1]
      * <br>
@@ -257,4 +323,213 @@ public class Problem {
     public boolean wantsWitnesses() {
         return witnesses;
     }
+    
+    /**
+     * Define how many threads the algorithm may use to explore independent branches concurrently.
+     * <br>
+     * The resulting set of {@linkplain Solution Solutions} is the same as in the sequential case,
+     * though the order in which the branches are explored isn't.
+     * <br><br>
+     * If a {@linkplain Problem#customFuzzySystem(FuzzySystem) custom fuzzy system} is provided,
+     * it must be safe to call from multiple threads at once.
+     *
+     * @param parallelism default: <b>1</b> (sequential)
+     */
+    public Problem parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw Panic.arg("Parallelism must be at least 1, but got %s", parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Define the order in which the branches of the main loop are explored.
+     * <br>
+     * The resulting set of {@linkplain Solution Solutions} is the same either way.
+     * <br><br>
+     * With many proximate heads per level, the breadth-first frontier can get very big,
+     * since every partial branch stays in memory until its whole level is done.
+     * {@linkplain SearchStrategy#DEPTH_FIRST Depth-first} only keeps the siblings along the current path in memory.
+     * <br><br>
+     * Only applies to the sequential case (see {@linkplain Problem#parallelism(int)}),
+     * aside from {@linkplain SearchStrategy#BEST_FIRST best-first}, which always runs sequentially.
+     *
+     * @param searchStrategy default: <b>{@linkplain SearchStrategy#BREADTH_FIRST}</b>
+     */
+    public Problem searchStrategy(SearchStrategy searchStrategy) {
+        this.searchStrategy = searchStrategy;
+        return this;
+    }
+    
+    public SearchStrategy getSearchStrategy() {
+        return searchStrategy;
+    }
+    
+    /**
+     * Only produce the <b>k</b> solutions with the highest <b>min(α1, α2)</b>, instead of all of them.
+     * <br>
+     * The branches are then explored {@linkplain SearchStrategy#BEST_FIRST best-first},
+     * which stops as soon as the <b>k</b> best solutions are found, and skips the rest of the search space.
+     * Ties between equally good solutions are broken arbitrarily.
+     * <br><br>
+     * Best-first search is always sequential (see {@linkplain Problem#parallelism(int)}).
+     *
+     * @param k default: <b>0</b> (all solutions)
+     */
+    public Problem topK(int k) {
+        if (k < 0) {
+            throw Panic.arg("Top-k must be at least 0, but got %s", k);
+        }
+        this.topK = k;
+        return this;
+    }
+    
+    public int getTopK() {
+        return topK;
+    }
+    
+    /**
+     * Define an executor for post processing the linear configs of the main loop into {@linkplain Solution Solutions}
+     * (i.e. expanding, merging and generating witnesses), which is usually the most expensive part of the algorithm.
+     * <br>
+     * Each config is then handed to the executor as soon as the main loop produces it, so post processing overlaps with exploration,
+     * and the configs are post processed concurrently. If the executor is a {@linkplain java.util.concurrent.ForkJoinPool ForkJoinPool},
+     * the AUTs within each config are also expanded and merged in parallel.
+     * <br><br>
+     * Without an executor, each config is post processed on the thread which found it.
+     * Doesn't apply to {@linkplain Problem#solveStream()}.
+     * <br><br>
+     * If a {@linkplain Problem#customFuzzySystem(FuzzySystem) custom fuzzy system} is provided,
+     * it must be safe to call from multiple threads at once.
+     *
+     * @param postProcessing default: <b>null</b>
+     */
+    public Problem postProcessing(Executor postProcessing) {
+        this.postProcessing = postProcessing;
+        return this;
+    }
+    
+    public Executor getPostProcessing() {
+        return postProcessing;
+    }
+    
+    /**
+     * Define a listener which gets notified of the algorithm's steps and solutions, e.g. {@linkplain LoggingSolverListener}.
+     * <br>
+     * Without a listener, the algorithm doesn't describe what it's doing at all.
+     *
+     * @param listener default: {@linkplain SolverListener#NONE}
+     */
+    public Problem listener(SolverListener listener) {
+        if (listener == null) {
+            throw Panic.arg("The listener can't be null, use SolverListener.NONE instead");
+        }
+        this.listener = listener;
+        return this;
+    }
+    
+    public SolverListener getListener() {
+        return listener;
+    }
+    
+    // *** limits ***
+    
+    /**
+     * Stop the algorithm once it has been running for the given time.
+     * <br><br>
+     * The limits are checked cooperatively, i.e. each time the algorithm expands a config of its main loop
+     * or a state of the special conjunction, so the algorithm overshoots them by at most one such step.
+     * <br>
+     * {@linkplain Problem#solve()} fails once a limit is reached, while {@linkplain Problem#solveDetailed()}
+     * returns the solutions which were completed by then.
+     * <br><br>
+     * Interrupting the thread which runs the algorithm (e.g. via {@linkplain java.util.concurrent.Future#cancel(boolean)})
+     * stops it the same way.
+     *
+     * @param timeLimit default: <b>null</b> (unlimited)
+     */
+    public Problem timeLimit(Duration timeLimit) {
+        if (timeLimit != null && timeLimit.isNegative()) {
+            throw Panic.arg("Time limit must not be negative, but got %s", timeLimit);
+        }
+        this.timeLimit = timeLimit;
+        return this;
+    }
+    
+    public Duration getTimeLimit() {
+        return timeLimit;
+    }
+    
+    /**
+     * Stop the algorithm once it has expanded the given number of configs in its main loop
+     * (see {@linkplain Problem#timeLimit(Duration)}).
+     *
+     * @param maxConfigs default: <b>{@linkplain Long#MAX_VALUE}</b> (unlimited)
+     */
+    public Problem maxConfigs(long maxConfigs) {
+        if (maxConfigs < 0) {
+            throw Panic.arg("Max configs must be at least 0, but got %s", maxConfigs);
+        }
+        this.maxConfigs = maxConfigs;
+        return this;
+    }
+    
+    public long getMaxConfigs() {
+        return maxConfigs;
+    }
+    
+    /**
+     * Stop the algorithm once it has expanded the given number of states in the special conjunction
+     * (see {@linkplain Problem#timeLimit(Duration)}).
+     * <br>
+     * The special conjunction is used to check consistency while decomposing (for restriction types without correspondence),
+     * and to expand and merge the solutions in post processing.
+     *
+     * @param maxStates default: <b>{@linkplain Long#MAX_VALUE}</b> (unlimited)
+     */
+    public Problem maxStates(long maxStates) {
+        if (maxStates < 0) {
+            throw Panic.arg("Max states must be at least 0, but got %s", maxStates);
+        }
+        this.maxStates = maxStates;
+        return this;
+    }
+    
+    public long getMaxStates() {
+        return maxStates;
+    }
+    
+    /**
+     * Stop the algorithm once <b>cancellation</b> returns <b>true</b>
+     * (see {@linkplain Problem#timeLimit(Duration)}).
+     * <br>
+     * The supplier is polled from the algorithm's worker threads, so it must be cheap and thread-safe,
+     * e.g. <code>flag::get</code> on an {@linkplain java.util.concurrent.atomic.AtomicBoolean AtomicBoolean}.
+     *
+     * @param cancellation default: <b>null</b> (never cancelled)
+     */
+    public Problem cancellation(BooleanSupplier cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+    
+    public BooleanSupplier getCancellation() {
+        return cancellation;
+    }
+    
+    public enum SearchStrategy {
+        BREADTH_FIRST,
+        DEPTH_FIRST,
+        /**
+         * Explores the branches with the highest <b>min(α1, α2)</b> first, so the best solutions are found first.
+         * <br>
+         * Always sequential (see {@linkplain Problem#parallelism(int)}).
+         */
+        BEST_FIRST
+    }
 }
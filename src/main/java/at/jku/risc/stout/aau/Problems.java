@@ -0,0 +1,198 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.impl.Algorithm;
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Solves batches of {@linkplain Problem Problems}.
+ */
+public final class Problems {
+    private static final Logger log = LoggerFactory.getLogger(Problems.class);
+    
+    private Problems() {
+    }
+    
+    /**
+     * Solves all given problems on the <b>executor</b>, and waits until they're done.
+     * <br><br>
+     * Problems with equal {@linkplain Problem#proximityRelations(Collection) relations} and {@linkplain Problem#arities(Map) arities}
+     * (compared by content, so e.g. problems which parse the same relations string separately count as equal)
+     * share one {@linkplain CompiledFuzzySystem}, which is compiled once at the lowest λ-cut among them,
+     * by whichever of them runs first. Each problem then solves on a {@linkplain CompiledFuzzySystem#atLambda(float) view}
+     * at its own λ-cut.
+     * <br><br>
+     * If any of the problems fails (including reaching one of its limits, see {@linkplain Problem#timeLimit(java.time.Duration)}),
+     * the exception is rethrown once all problems are done.
+     *
+     * @return the solutions of each problem, in the order of <b>problems</b>
+     */
+    public static List<Set<Solution>> solveAll(Collection<Problem> problems, Executor executor) {
+        return batch(problems, executor, Algorithm::run).results;
+    }
+    
+    /**
+     * Same as {@linkplain Problems#solveAll(Collection, Executor)}, but solves each problem via {@linkplain Problem#solveDetailed()},
+     * so a problem which reaches one of its limits only marks its own result as incomplete.
+     *
+     * @return the result of each problem, in the order of <b>problems</b>, along with the batch's elapsed time and throughput
+     */
+    public static BatchResult solveAllDetailed(Collection<Problem> problems, Executor executor) {
+        Batch<SolveResult> batch = batch(problems, executor, Algorithm::runDetailed);
+        return new BatchResult(batch.results, batch.elapsed, batch.sharedFuzzySystems);
+    }
+    
+    private static <R> Batch<R> batch(Collection<Problem> problems, Executor executor, Function<Algorithm, R> solve) {
+        long startTime = System.nanoTime();
+        
+        // group the problems up front, so each group can be compiled at its lowest λ-cut
+        Map<Collection<ProximityRelation>, Set<RelationKey>> contents = new IdentityHashMap<>();
+        Map<SharedKey, Float> lowestLambdas = new HashMap<>();
+        List<SharedKey> keys = new ArrayList<>(problems.size());
+        for (Problem problem : problems) {
+            SharedKey key = null;
+            if (problem.getCustomFuzzySystem() == null && problem.getCompiledFuzzySystem() == null
+                    && problem.getLambda() > 0.0f && problem.getLambda() <= 1.0f) {
+                key = new SharedKey(contents.computeIfAbsent(problem.getProximityRelations(), RelationKey::contentOf),
+                        problem.getDefinedArities());
+                lowestLambdas.merge(key, problem.getLambda(), Math::min);
+            }
+            keys.add(key);
+        }
+        
+        Map<SharedKey, CompiledFuzzySystem> compiled = new ConcurrentHashMap<>();
+        List<CompletableFuture<R>> futures = new ArrayList<>(problems.size());
+        Iterator<SharedKey> keyIterator = keys.iterator();
+        for (Problem problem : problems) {
+            SharedKey key = keyIterator.next();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                if (key == null) {
+                    return solve.apply(new Algorithm(problem));
+                }
+                CompiledFuzzySystem shared = compiled.computeIfAbsent(key, k ->
+                        new CompiledFuzzySystem(problem.getProximityRelations(), problem.getDefinedArities(), lowestLambdas.get(k)));
+                return solve.apply(new Algorithm(problem, shared));
+            }, executor));
+        }
+        
+        List<R> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        
+        Batch<R> batch = new Batch<>(results, Duration.ofNanos(System.nanoTime() - startTime), compiled.size());
+        if (log.isInfoEnabled()) {
+            double seconds = batch.elapsed.toNanos() / 1e9;
+            log.info("Solved {} problems in {} s ({} problems/s), sharing {} compiled fuzzy systems",
+                    problems.size(),
+                    String.format("%.3f", seconds),
+                    String.format("%.1f", problems.size() / seconds),
+                    batch.sharedFuzzySystems);
+        }
+        return batch;
+    }
+    
+    private static class Batch<R> {
+        final List<R> results;
+        final Duration elapsed;
+        final int sharedFuzzySystems;
+        
+        Batch(List<R> results, Duration elapsed, int sharedFuzzySystems) {
+            this.results = results;
+            this.elapsed = elapsed;
+            this.sharedFuzzySystems = sharedFuzzySystems;
+        }
+    }
+    
+    /**
+     * Identifies problems which can share a {@linkplain CompiledFuzzySystem}.
+     * <br>
+     * The λ-cut isn't part of the key, since each problem gets its own {@linkplain CompiledFuzzySystem#atLambda(float) view}.
+     */
+    private static class SharedKey {
+        final Set<RelationKey> relations;
+        final Map<String, Integer> arities;
+        
+        SharedKey(Set<RelationKey> relations, Map<String, Integer> arities) {
+            this.relations = relations;
+            this.arities = arities;
+        }
+        
+        @Override
+        public int hashCode() {
+            return relations.hashCode() * 31 + arities.hashCode();
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SharedKey)) {
+                return false;
+            }
+            SharedKey other = (SharedKey) obj;
+            return relations.equals(other.relations) && arities.equals(other.arities);
+        }
+    }
+    
+    /**
+     * The content of a {@linkplain ProximityRelation}, which (unlike the relation itself) compares by value.
+     * <br>
+     * Building these is linear in the size of the relations, which is far cheaper than compiling them.
+     * Each relations instance is only converted once per batch.
+     */
+    private static class RelationKey {
+        final int f, g;
+        final float proximity;
+        final List<List<Integer>> argMapping;
+        
+        RelationKey(ProximityRelation relation) {
+            this.f = relation.fSymbol;
+            this.g = relation.gSymbol;
+            this.proximity = relation.proximity;
+            this.argMapping = new ArrayList<>(relation.argMapping.size());
+            for (Set<Integer> args : relation.argMapping) {
+                argMapping.add(new ArrayList<>(new TreeSet<>(args)));
+            }
+        }
+        
+        static Set<RelationKey> contentOf(Collection<ProximityRelation> relations) {
+            Set<RelationKey> content = new HashSet<>();
+            for (ProximityRelation relation : relations) {
+                content.add(new RelationKey(relation));
+            }
+            return content;
+        }
+        
+        @Override
+        public int hashCode() {
+            return ((f * 31 + g) * 31 + Float.hashCode(proximity)) * 31 + argMapping.hashCode();
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RelationKey)) {
+                return false;
+            }
+            RelationKey other = (RelationKey) obj;
+            return f == other.f && g == other.g && Float.compare(proximity, other.proximity) == 0 && argMapping.equals(other.argMapping);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.impl.Substitution;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.Term;
+import at.jku.risc.stout.aau.util.Panic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazily walks the cartesian product of a {@linkplain Witness}, applying each combination to the generalization.
+ * <br><br>
+ * Each combination is identified by its index in a mixed-radix number system, where digit <b>i</b> picks one of the
+ * terms of the <b>i</b>-th variable. A spliterator covers a range of indices, and splits by halving it,
+ * so parallel consumers never need to coordinate.
+ * <br><br>
+ * The product only ranges over variables which actually occur in the generalization (the others can't have any effect),
+ * and the terms per variable are a set. So distinct indices always produce distinct terms,
+ * and no duplicate needs to be remembered in order to be dropped.
+ */
+class ProximateSpliterator implements Spliterator<GroundishTerm> {
+    private final Term generalization;
+    private final int[] variables;
+    private final GroundishTerm[][] choices;
+    private final int[] digits;
+    private long index;
+    private final long end;
+    
+    private ProximateSpliterator(Term generalization, int[] variables, GroundishTerm[][] choices, long index, long end) {
+        this.generalization = generalization;
+        this.variables = variables;
+        this.choices = choices;
+        this.digits = new int[variables.length];
+        this.index = index;
+        this.end = end;
+        decode();
+    }
+    
+    static ProximateSpliterator of(Term generalization, Witness witness) {
+        int[] variables = generalization.namedVariables().stream().mapToInt(Integer::intValue).sorted().toArray();
+        GroundishTerm[][] choices = new GroundishTerm[variables.length][];
+        long size = 1;
+        for (int i = 0; i < variables.length; i++) {
+            Set<GroundishTerm> terms = witness.substitutions.get(variables[i]);
+            if (terms == null) {
+                throw Panic.arg("Witness has no substitution for variable %s of %s", variables[i], generalization);
+            }
+            choices[i] = terms.toArray(new GroundishTerm[0]);
+            try {
+                size = Math.multiplyExact(size, choices[i].length);
+            } catch (ArithmeticException e) {
+                throw Panic.state("Can't enumerate more than %s proximate terms of %s (see Solution.countProximates())", Long.MAX_VALUE, generalization);
+            }
+        }
+        return new ProximateSpliterator(generalization, variables, choices, 0, size);
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super GroundishTerm> action) {
+        if (index >= end) {
+            return false;
+        }
+        List<Substitution> substitutions = new ArrayList<>(variables.length);
+        for (int i = 0; i < variables.length; i++) {
+            substitutions.add(new Substitution(variables[i], choices[i][digits[i]]));
+        }
+        GroundishTerm term = Substitution.applyAll_forceGroundish(substitutions, generalization);
+        index++;
+        increment();
+        action.accept(term);
+        return true;
+    }
+    
+    @Override
+    public Spliterator<GroundishTerm> trySplit() {
+        long remaining = end - index;
+        if (remaining < 2) {
+            return null;
+        }
+        long mid = index + remaining / 2;
+        ProximateSpliterator prefix = new ProximateSpliterator(generalization, variables, choices, index, mid);
+        index = mid;
+        decode();
+        return prefix;
+    }
+    
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+    
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+    
+    /**
+     * Sets the digits to the current index, with the last variable as the least significant digit
+     */
+    private void decode() {
+        long remainder = index;
+        for (int i = variables.length - 1; i >= 0; i--) {
+            int radix = choices[i].length;
+            if (radix == 0) {
+                return; // empty product, so there's nothing to decode
+            }
+            digits[i] = (int) (remainder % radix);
+            remainder /= radix;
+        }
+    }
+    
+    private void increment() {
+        for (int i = variables.length - 1; i >= 0; i--) {
+            if (++digits[i] < choices[i].length) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package at.jku.risc.stout.aau;
 
+import at.jku.risc.stout.aau.term.SymbolTable;
 import at.jku.risc.stout.aau.util.ANSI;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Data;
@@ -20,17 +21,59 @@ import java.util.*;
  */
 public class ProximityRelation {
     public final String f, g;
+    /**
+     * The {@linkplain SymbolTable} ids of {@linkplain ProximityRelation#f} and {@linkplain ProximityRelation#g}.
+     */
+    public final int fSymbol, gSymbol;
     public final float proximity;
     public final List<Set<Integer>> argMapping;
+    /**
+     * Flat copy of {@linkplain ProximityRelation#argMapping}:
+     * argument <b>i</b> of <b>f</b> maps to the arguments <b>argTargets[argOffsets[i]]</b> ... <b>argTargets[argOffsets[i+1] - 1]</b> of <b>g</b>.
+     */
+    private final int[] argOffsets, argTargets;
     
     public ProximityRelation(String f, String g, float proximity, List<Set<Integer>> argMapping) {
-        this.f = f.intern();
-        this.g = g.intern();
+        this.f = SymbolTable.canonical(f);
+        this.g = SymbolTable.canonical(g);
+        this.fSymbol = SymbolTable.id(this.f);
+        this.gSymbol = SymbolTable.id(this.g);
         if (proximity < 0.0f || proximity > 1.0f) {
             throw Panic.arg("Proximity outside of range [0,1]: %s", proximity);
         }
         this.proximity = proximity;
         this.argMapping = argMapping;
+        
+        this.argOffsets = new int[argMapping.size() + 1];
+        for (int idx = 0; idx < argMapping.size(); idx++) {
+            argOffsets[idx + 1] = argOffsets[idx] + argMapping.get(idx).size();
+        }
+        this.argTargets = new int[argOffsets[argMapping.size()]];
+        int target = 0;
+        for (Set<Integer> args : argMapping) {
+            for (int arg : args) {
+                argTargets[target++] = arg;
+            }
+        }
+    }
+    
+    /**
+     * @return the number of arguments of <b>g</b> which argument <b>fIdx</b> of <b>f</b> maps to
+     * (0 for positions outside the stated mapping)
+     */
+    public int mappedArgCount(int fIdx) {
+        if (fIdx + 1 >= argOffsets.length) {
+            return 0;
+        }
+        return argOffsets[fIdx + 1] - argOffsets[fIdx];
+    }
+    
+    /**
+     * @return the <b>n</b>-th argument of <b>g</b> which argument <b>fIdx</b> of <b>f</b> maps to
+     */
+    public int mappedArg(int fIdx, int n) {
+        assert n < mappedArgCount(fIdx);
+        return argTargets[argOffsets[fIdx] + n];
     }
     
     public ProximityRelation flipped() {
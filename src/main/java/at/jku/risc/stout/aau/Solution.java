@@ -1,19 +1,17 @@
 package at.jku.risc.stout.aau;
 
 import at.jku.risc.stout.aau.impl.Algorithm;
-import at.jku.risc.stout.aau.impl.Substitution;
 import at.jku.risc.stout.aau.term.GroundishTerm;
-import at.jku.risc.stout.aau.term.GroundishTermImpl;
 import at.jku.risc.stout.aau.term.Term;
 import at.jku.risc.stout.aau.util.ANSI;
-import at.jku.risc.stout.aau.util.Data;
 import at.jku.risc.stout.aau.util.Pair;
+import at.jku.risc.stout.aau.util.Panic;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.math.BigInteger;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The output of the {@linkplain Algorithm Algorithm} is a set of {@linkplain Solution Solutions},
@@ -22,7 +20,8 @@ import java.util.stream.Collectors;
  * If enabled, each variable in the {@linkplain Solution#generalization}
  * gets an associated {@linkplain Witness#substitutions} entry per side of the equation.
  * You can apply any combination of these to get a term which approximates the respective problem term.
- * You can get all possible approximating terms with {@linkplain Solution#enumerate()}.
+ * You can get all possible approximating terms with {@linkplain Solution#enumerate()},
+ * or lazily with {@linkplain Solution#lhsProximates()} and {@linkplain Solution#rhsProximates()}.
  * <br><br>
  * {@linkplain Solution#alpha1} and {@linkplain Solution#alpha2} are the maximum proximities you can get for each side.
  */
@@ -46,20 +45,59 @@ public class Solution {
         this.alpha2 = alpha2;
     }
     
+    /**
+     * Collects all proximate terms of both sides - see {@linkplain Solution#lhsProximates()} for a lazy alternative.
+     */
     public Pair<Set<GroundishTerm>, Set<GroundishTerm>> enumerate() {
-        return Pair.of(enumerateSide(lhs.substitutions), enumerateSide(rhs.substitutions));
+        return Pair.of(lhsProximates().collect(Collectors.toSet()), rhsProximates().collect(Collectors.toSet()));
     }
     
-    private Set<GroundishTerm> enumerateSide(Map<Integer, Set<GroundishTerm>> substitutions) {
-        List<Set<Substitution>> steps = substitutions.entrySet().stream()
-                .map(entry -> entry.getValue().stream()
-                        .map(term -> new Substitution(entry.getKey(), term))
-                        .collect(Collectors.toSet()))
-                .collect(Collectors.toList());
-        
-        Set<Term> generalization = Collections.singleton(this.generalization);
-        Set<Term> unchaste = Data.permute(generalization, steps, ((term, substitution) -> substitution.apply(term)));
-        return unchaste.stream().map(GroundishTermImpl::force).collect(Collectors.toSet());
+    /**
+     * Lazily applies every combination of the {@linkplain Solution#lhs} substitutions to the {@linkplain Solution#generalization}.
+     * <br>
+     * Each term is only built once it's consumed, and is produced exactly once.
+     * The stream is sequential, but splits evenly if you make it {@linkplain Stream#parallel() parallel}.
+     */
+    public Stream<GroundishTerm> lhsProximates() {
+        return proximates(lhs);
+    }
+    
+    /**
+     * See {@linkplain Solution#lhsProximates()}
+     */
+    public Stream<GroundishTerm> rhsProximates() {
+        return proximates(rhs);
+    }
+    
+    private Stream<GroundishTerm> proximates(Witness witness) {
+        if (witness == null) {
+            throw Panic.state("Can't enumerate proximate terms without witnesses");
+        }
+        return StreamSupport.stream(ProximateSpliterator.of(generalization, witness), false);
+    }
+    
+    /**
+     * The exact number of proximate terms per side, i.e. the sizes of {@linkplain Solution#enumerate()} -
+     * computed from the sizes of the substitution sets, without building any of the terms.
+     */
+    public Pair<BigInteger, BigInteger> countProximates() {
+        return Pair.of(countProximates(lhs), countProximates(rhs));
+    }
+    
+    private BigInteger countProximates(Witness witness) {
+        if (witness == null) {
+            throw Panic.state("Can't count proximate terms without witnesses");
+        }
+        // see ProximateSpliterator: only variables of the generalization count, and each combination gives a distinct term
+        BigInteger count = BigInteger.ONE;
+        for (int var : generalization.namedVariables()) {
+            Set<GroundishTerm> terms = witness.substitutions.get(var);
+            if (terms == null) {
+                throw Panic.arg("Witness has no substitution for variable %s of %s", var, generalization);
+            }
+            count = count.multiply(BigInteger.valueOf(terms.size()));
+        }
+        return count;
     }
     
     @Override
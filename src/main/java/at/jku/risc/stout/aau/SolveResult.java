@@ -0,0 +1,68 @@
+package at.jku.risc.stout.aau;
+
+import java.util.Set;
+
+/**
+ * The output of {@linkplain Problem#solveDetailed()}:
+ * the {@linkplain Solution Solutions}, whether they are all of them, and the {@linkplain SolveStats stats} of the run.
+ * <br><br>
+ * If one of the problem's limits was reached (e.g. {@linkplain Problem#timeLimit(java.time.Duration)}),
+ * the algorithm stops early, and {@linkplain SolveResult#solutions} only contains the solutions which were fully
+ * post processed by then. Each of those is still a proper solution, there just might be others missing.
+ */
+public class SolveResult {
+    public final Set<Solution> solutions;
+    /**
+     * The limit which stopped the algorithm, or <b>null</b> if it ran to completion.
+     */
+    public final Limit limitReached;
+    /**
+     * What the run did, and how long it took
+     */
+    public final SolveStats stats;
+    
+    public SolveResult(Set<Solution> solutions, Limit limitReached) {
+        this(solutions, limitReached, SolveStats.EMPTY);
+    }
+    
+    public SolveResult(Set<Solution> solutions, Limit limitReached, SolveStats stats) {
+        this.solutions = solutions;
+        this.limitReached = limitReached;
+        this.stats = stats;
+    }
+    
+    /**
+     * @return whether {@linkplain SolveResult#solutions} contains all solutions of the problem
+     */
+    public boolean isComplete() {
+        return limitReached == null;
+    }
+    
+    @Override
+    public String toString() {
+        return isComplete() ? solutions.toString() : String.format("%s (incomplete: %s)", solutions, limitReached);
+    }
+    
+    public enum Limit {
+        /**
+         * {@linkplain Problem#timeLimit(java.time.Duration)}
+         */
+        TIME,
+        /**
+         * {@linkplain Problem#maxConfigs(long)}
+         */
+        CONFIGS,
+        /**
+         * {@linkplain Problem#maxStates(long)}
+         */
+        STATES,
+        /**
+         * {@linkplain Problem#cancellation(java.util.function.BooleanSupplier)}
+         */
+        CANCELLED,
+        /**
+         * The thread which started the algorithm was interrupted.
+         */
+        INTERRUPTED
+    }
+}
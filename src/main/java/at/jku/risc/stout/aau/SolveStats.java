@@ -0,0 +1,128 @@
+package at.jku.risc.stout.aau;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Counters and timings of one or more {@linkplain at.jku.risc.stout.aau.impl.Algorithm Algorithm} runs
+ * (see {@linkplain SolveResult#stats}).
+ * <br><br>
+ * The stats of a batch can be combined with {@linkplain SolveStats#sum(Collection)}:
+ * most metrics are summed up, while {@linkplain Metric#MAX_FRONTIER} takes the maximum.
+ * The timings of phases which run on multiple threads are summed over all of them, so they can exceed the total.
+ */
+public class SolveStats {
+    public static final SolveStats EMPTY = new SolveStats(Collections.emptyMap());
+    
+    private final long[] values = new long[Metric.values().length];
+    
+    /**
+     * Missing metrics count as 0.
+     */
+    public SolveStats(Map<Metric, Long> values) {
+        values.forEach((metric, value) -> this.values[metric.ordinal()] = value);
+    }
+    
+    public long get(Metric metric) {
+        return values[metric.ordinal()];
+    }
+    
+    /**
+     * @return the combined stats of this and <b>other</b>
+     */
+    public SolveStats plus(SolveStats other) {
+        Map<Metric, Long> combined = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            long a = get(metric), b = other.get(metric);
+            combined.put(metric, metric == Metric.MAX_FRONTIER ? Math.max(a, b) : a + b);
+        }
+        return new SolveStats(combined);
+    }
+    
+    public static SolveStats sum(Collection<SolveStats> stats) {
+        SolveStats sum = EMPTY;
+        for (SolveStats each : stats) {
+            sum = sum.plus(each);
+        }
+        return sum;
+    }
+    
+    /**
+     * @return all metrics, in declaration order - e.g. for exporting them
+     */
+    public Map<Metric, Long> asMap() {
+        Map<Metric, Long> map = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            map.put(metric, get(metric));
+        }
+        return map;
+    }
+    
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Metric metric : Metric.values()) {
+            if (metric.name().endsWith("_NANOS")) {
+                joiner.add(String.format("%s=%.1f ms", metric.name().toLowerCase(), get(metric) / 1e6));
+            } else {
+                joiner.add(metric.name().toLowerCase() + "=" + get(metric));
+            }
+        }
+        return joiner.toString();
+    }
+    
+    public enum Metric {
+        /**
+         * The number of runs these stats cover
+         */
+        SOLVES,
+        /**
+         * Branches of the main loop, i.e. the initial config and each additional child of <b>DECOMPOSE</b>
+         */
+        CONFIGS_CREATED,
+        /**
+         * How often the main loop took up a config - a config which <b>DECOMPOSE</b> didn't branch is taken up again
+         */
+        CONFIGS_EXPLORED,
+        TRIVIAL,
+        DECOMPOSE,
+        SOLVE,
+        /**
+         * The most open branches which were waiting to be explored at any one time
+         */
+        MAX_FRONTIER,
+        /**
+         * Runs of the special conjunction which weren't answered by its memory
+         */
+        CONJUNCTIONS,
+        /**
+         * States explored by the special conjunction
+         */
+        STATES,
+        DECOMPOSITION_MEMO_HITS,
+        DECOMPOSITION_MEMO_MISSES,
+        CONJUNCTION_MEMO_HITS,
+        CONJUNCTION_MEMO_MISSES,
+        /**
+         * Lookups of the {@linkplain at.jku.risc.stout.aau.impl.CompiledFuzzySystem CompiledFuzzySystem's} common proximates memory
+         * made by this run (the memory itself may be shared with other problems, so earlier runs can contribute to the hits).
+         * Always 0 for a {@linkplain at.jku.risc.stout.aau.Problem#customFuzzySystem(FuzzySystem) custom fuzzy system}
+         */
+        PROXIMATES_MEMO_HITS,
+        PROXIMATES_MEMO_MISSES,
+        /**
+         * Time spent applying <b>TRIVIAL</b>, <b>DECOMPOSE</b> and <b>SOLVE</b>, summed over all workers
+         */
+        LINEAR_NANOS,
+        EXPAND_NANOS,
+        MERGE_NANOS,
+        WITNESS_NANOS,
+        /**
+         * Wall-clock time of the whole run
+         */
+        TOTAL_NANOS
+    }
+}
@@ -0,0 +1,78 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.term.GroundTerm;
+
+import java.util.Collection;
+
+/**
+ * Receives the events of an {@linkplain at.jku.risc.stout.aau.impl.Algorithm Algorithm} run
+ * (see {@linkplain Problem#listener(SolverListener)}).
+ * <br><br>
+ * All methods do nothing by default, so an implementation only overrides the events it cares about.
+ * The default listener {@linkplain SolverListener#NONE} doesn't do anything at all, so a run without a listener
+ * doesn't spend any time or memory on describing itself. {@linkplain LoggingSolverListener} logs the events as text.
+ * <br><br>
+ * With {@linkplain Problem#parallelism(int)} or a {@linkplain Problem#postProcessing(java.util.concurrent.Executor) post processing executor},
+ * the events are reported from multiple threads at once, so the listener must be thread-safe.
+ */
+public interface SolverListener {
+    SolverListener NONE = new SolverListener() {
+    };
+    
+    /**
+     * The run is about to start.
+     */
+    default void solving(GroundTerm lhs, GroundTerm rhs, float lambda, FuzzySystem fuzzySystem) {
+    }
+    
+    /**
+     * <b>TRIVIAL</b> substituted an empty AUT of <b>cfg</b> with the anonymous variable.
+     */
+    default void trivial(ConfigView cfg) {
+    }
+    
+    /**
+     * <b>DECOMPOSE</b> branched a config into <b>children</b>, one per common proximate
+     * (the original config is reused as one of them).
+     */
+    default void decomposed(Collection<? extends ConfigView> children) {
+    }
+    
+    /**
+     * <b>SOLVE</b> moved an AUT of <b>cfg</b> to the solved AUTs.
+     */
+    default void solved(ConfigView cfg) {
+    }
+    
+    /**
+     * <b>cfg</b> has no open AUTs left, and is handed to post processing.
+     */
+    default void linear(ConfigView cfg) {
+    }
+    
+    /**
+     * Post processing expanded the solved AUTs of <b>cfg</b>.
+     */
+    default void expanded(ConfigView cfg) {
+    }
+    
+    /**
+     * Post processing merged the solved AUTs of <b>cfg</b>.
+     */
+    default void merged(ConfigView cfg) {
+    }
+    
+    /**
+     * A solution is done.
+     */
+    default void solution(Solution solution) {
+    }
+    
+    /**
+     * The run is done.
+     * <br>
+     * For a {@linkplain Problem#solveStream()}, that's once the stream is exhausted - a stream which is abandoned early never finishes.
+     */
+    default void finished(SolveResult result) {
+    }
+}
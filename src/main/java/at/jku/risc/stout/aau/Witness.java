@@ -4,14 +4,16 @@ import at.jku.risc.stout.aau.term.GroundishTerm;
 import at.jku.risc.stout.aau.util.ANSI;
 import at.jku.risc.stout.aau.util.Data;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * See {@linkplain Solution}
+ * <br><br>
+ * The algorithm builds witnesses in a compact form: the sorted variables, and for each of them a reference to the set of terms
+ * which the algorithm already computed for it (see {@linkplain Witness#Witness(int[], List)}).
+ * {@linkplain Witness#substitutions} is then only a read-only view over those, so nothing is copied unless the caller does so.
  */
 public class Witness {
     public final Map<Integer, Set<GroundishTerm>> substitutions;
@@ -20,6 +22,16 @@ public class Witness {
         this.substitutions = Collections.unmodifiableMap(substitutions);
     }
     
+    /**
+     * Compact witness, where <b>variables[i]</b> maps to <b>terms.get(i)</b>.
+     * <br>
+     * The variables must be in ascending order and unique, and neither of the arguments may be modified afterwards.
+     */
+    public Witness(int[] variables, List<? extends Set<GroundishTerm>> terms) {
+        assert variables.length == terms.size();
+        this.substitutions = new CompactSubstitutions(variables, terms);
+    }
+    
     @Override
     public String toString() {
         return Data.str(substitutions.entrySet()
@@ -27,4 +39,69 @@ public class Witness {
                 .flatMap(entry -> Stream.of(ANSI.blue(entry.getKey()), Data.str(entry.getValue())))
                 .collect(Collectors.toList()));
     }
+    
+    /**
+     * Read-only map view over the compact form. Entries are only created while iterating.
+     */
+    private static class CompactSubstitutions extends AbstractMap<Integer, Set<GroundishTerm>> {
+        private final int[] variables;
+        private final List<? extends Set<GroundishTerm>> terms;
+        
+        CompactSubstitutions(int[] variables, List<? extends Set<GroundishTerm>> terms) {
+            this.variables = variables;
+            this.terms = terms;
+        }
+        
+        @Override
+        public int size() {
+            return variables.length;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && Arrays.binarySearch(variables, (Integer) key) >= 0;
+        }
+        
+        @Override
+        public Set<GroundishTerm> get(Object key) {
+            if (!(key instanceof Integer)) {
+                return null;
+            }
+            int idx = Arrays.binarySearch(variables, (Integer) key);
+            return idx < 0 ? null : Collections.unmodifiableSet(terms.get(idx));
+        }
+        
+        @Override
+        public Set<Entry<Integer, Set<GroundishTerm>>> entrySet() {
+            return new AbstractSet<Entry<Integer, Set<GroundishTerm>>>() {
+                @Override
+                public int size() {
+                    return variables.length;
+                }
+                
+                @Override
+                public Iterator<Entry<Integer, Set<GroundishTerm>>> iterator() {
+                    return new Iterator<Entry<Integer, Set<GroundishTerm>>>() {
+                        private int idx = 0;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return idx < variables.length;
+                        }
+                        
+                        @Override
+                        public Entry<Integer, Set<GroundishTerm>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, Set<GroundishTerm>> entry =
+                                    new SimpleImmutableEntry<>(variables[idx], Collections.unmodifiableSet(terms.get(idx)));
+                            idx++;
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
@@ -2,18 +2,9 @@ package at.jku.risc.stout.aau.impl;
 
 import at.jku.risc.stout.aau.Witness;
 import at.jku.risc.stout.aau.term.GroundishTerm;
-import at.jku.risc.stout.aau.term.GroundishTermImpl;
-import at.jku.risc.stout.aau.term.Term;
 import at.jku.risc.stout.aau.util.ANSI;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Data;
-import at.jku.risc.stout.aau.util.Pair;
-
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * {@linkplain AUT Anti-Unification Triples} are part of a {@linkplain Config Config's} description of a program state.
@@ -34,32 +25,6 @@ class AUT {
         this.T2 = T2;
     }
     
-    static Pair<Set<GroundishTerm>, Set<GroundishTerm>> substituteAll(Queue<AUT> auts, Term baseTerm) {
-        Pair<Set<Term>, Set<Term>> applied = Pair.of(new HashSet<>(), new HashSet<>());
-        applied.left.add(baseTerm);
-        applied.right.add(baseTerm);
-        for (AUT aut : auts) {
-            applied = aut.substitute(applied.left, applied.right);
-        }
-
-        return Pair.of(
-                Collections.unmodifiableSet(
-                        applied.left.stream().map(GroundishTermImpl::force).collect(Collectors.toSet())),
-                Collections.unmodifiableSet(
-                        applied.right.stream().map(GroundishTermImpl::force).collect(Collectors.toSet()))
-        );
-    }
-    
-    Pair<Set<Term>, Set<Term>> substitute(Set<Term> Q1, Set<Term> Q2) {
-        Set<Term> lhs = new HashSet<>();
-        Set<Term> rhs = new HashSet<>();
-        
-        Q1.forEach(q1 -> T1.forEach(t1 -> lhs.add(new Substitution(variable, t1).apply(q1))));
-        Q2.forEach(q2 -> T2.forEach(t2 -> rhs.add(new Substitution(variable, t2).apply(q2))));
-        
-        return Pair.of(Collections.unmodifiableSet(lhs), Collections.unmodifiableSet(rhs));
-    }
-    
     @Override
     public String toString() {
         return String.format("%s [%s]==[%s]", ANSI.blue(variable), Data.str(T1), Data.str(T2));
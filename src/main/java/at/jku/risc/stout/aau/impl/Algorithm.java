@@ -8,7 +8,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static at.jku.risc.stout.aau.term.Anon.ANON;
 
@@ -43,6 +51,20 @@ public class Algorithm {
         return new Algorithm(problem).run();
     }
     
+    /**
+     * Equivalent to calling {@linkplain Problem#solveDetailed()} on the {@linkplain Problem} itself.
+     */
+    public static SolveResult solveDetailed(Problem problem) {
+        return new Algorithm(problem).runDetailed();
+    }
+    
+    /**
+     * Equivalent to calling {@linkplain Problem#solveStream()} on the {@linkplain Problem} itself.
+     */
+    public static Stream<Solution> solveStream(Problem problem) {
+        return new Algorithm(problem).stream();
+    }
+    
     // ^^^ api ^^^
     
     // *** implementation ***
@@ -54,8 +76,35 @@ public class Algorithm {
     private final TNorm tNorm;
     private final float lambda;
     private final boolean doMerge, giveWitnesses;
+    private final int parallelism;
+    private final Problem.SearchStrategy searchStrategy;
+    private final int topK;
+    private final Executor postProcessing;
+    private final SolverListener listener;
+    
+    private DecompositionMemo decompositionMemo = new DecompositionMemo();
+    private final ConjunctionMemo conjunctionMemo = new ConjunctionMemo();
+    private final Budget budget;
+    private final LongAdder configsCreated = new LongAdder(), trivial = new LongAdder(), decompose = new LongAdder(), solve = new LongAdder();
+    private final LongAdder conjunctions = new LongAdder();
+    private final LongAccumulator maxFrontier = new LongAccumulator(Math::max, 0);
+    private final AtomicLong forkedBranches = new AtomicLong();
+    private final LongAdder linearNanos = new LongAdder(), expandNanos = new LongAdder(), mergeNanos = new LongAdder(), witnessNanos = new LongAdder();
+    private volatile long startTime = 0, endTime = 0;
     
     public Algorithm(Problem problem) {
+        this(problem, null);
+    }
+    
+    /**
+     * Same as {@linkplain Algorithm#Algorithm(Problem)}, but uses <b>compiled</b> in place of compiling the problem's
+     * {@linkplain Problem#proximityRelations(Collection) relations} and {@linkplain Problem#arities(Map) arities}.
+     * <br>
+     * <b>compiled</b> must have been compiled from exactly those, with at most the problem's λ-cut
+     * (see {@linkplain at.jku.risc.stout.aau.Problems#solveAll(Collection, java.util.concurrent.Executor)}).
+     * It is ignored if the problem defines its own custom or compiled fuzzy system.
+     */
+    public Algorithm(Problem problem, CompiledFuzzySystem compiled) {
         lhs = problem.getEquation().left;
         rhs = problem.getEquation().right;
         lambda = problem.getLambda();
@@ -67,177 +116,589 @@ public class Algorithm {
         }
         if (problem.getCustomFuzzySystem() != null) {
             fuzzySystem = problem.getCustomFuzzySystem();
+        } else if (problem.getCompiledFuzzySystem() != null) {
+            fuzzySystem = new PredefinedFuzzySystem(lhs, rhs, problem.getCompiledFuzzySystem().atLambda(lambda));
         } else {
-            fuzzySystem = new PredefinedFuzzySystem(lhs, rhs, problem.getDefinedArities(), problem.getProximityRelations(), lambda);
+            if (compiled == null) {
+                compiled = new CompiledFuzzySystem(problem.getProximityRelations(), problem.getDefinedArities(), lambda);
+            }
+            fuzzySystem = new PredefinedFuzzySystem(lhs, rhs, compiled.atLambda(lambda));
         }
         tNorm = problem.getTNorm();
         doMerge = problem.wantsMerge();
         giveWitnesses = problem.wantsWitnesses();
+        parallelism = problem.getParallelism();
+        topK = problem.getTopK();
+        searchStrategy = topK > 0 ? Problem.SearchStrategy.BEST_FIRST : problem.getSearchStrategy();
+        postProcessing = problem.getPostProcessing();
+        listener = problem.getListener();
+        budget = new Budget(problem);
     }
     
-    // TODO document
+    /**
+     * Runs the algorithm to completion.
+     *
+     * @throws IllegalStateException if one of the problem's limits is reached first (see {@linkplain Algorithm#runDetailed()})
+     */
     public Set<Solution> run() {
-        log.info(ANSI.yellow("SOLVING: ") + lhs + ANSI.yellow(" == ") + rhs + ANSI.yellow(" λ=", lambda));
-        
-        if (log.isDebugEnabled()) {
-            log.debug(Data.log(ANSI.yellow("R:"), fuzzySystem.fullView()));
-        } else {
-            log.info(ANSI.yellow("R (compact): ") + Data.str(fuzzySystem.compactView()));
+        SolveResult result = runDetailed();
+        if (!result.isComplete()) {
+            throw Panic.state("Reached limit [%s] after %s solutions. Use Problem.solveDetailed() to get the incomplete result instead.",
+                    result.limitReached, result.solutions.size());
         }
+        return result.solutions;
+    }
+    
+    /**
+     * Runs the algorithm until it's done, or until one of the problem's limits is reached
+     * (see {@linkplain Problem#timeLimit(java.time.Duration)}).
+     * <br><br>
+     * Each linear {@linkplain Config} is post processed as soon as the main loop produces it
+     * (on the {@linkplain Problem#postProcessing(Executor) post processing executor}, if there is one),
+     * so if the run is stopped early, the result still contains the solutions of the configs which were finished by then.
+     * <br><br>
+     * Nothing of the run outlives this method: once it stops (normally, at a limit, or by failing),
+     * post processing which hasn't started yet is skipped, and everything which is still running is waited for.
+     */
+    public SolveResult runDetailed() {
+        listener.solving(lhs, rhs, lambda, fuzzySystem);
+        budget.start();
+        startTime = System.nanoTime();
         
-        if (fuzzySystem.restrictionType() == fuzzySystem.practicalRestrictionType()) {
-            log.info("The problem is of type {}.", ANSI.blue(fuzzySystem.restrictionType()));
-        } else {
-            log.info("The problem is in theory of type {}. But excluding relations below the λ-cut, it is of type {}.",
-                    ANSI.blue(fuzzySystem.restrictionType()),
-                    ANSI.blue(fuzzySystem.practicalRestrictionType()));
+        Queue<Solution> finished = new ConcurrentLinkedQueue<>();
+        Queue<PostProcessingTask> pending = new ConcurrentLinkedQueue<>();
+        Consumer<Config> onLinear = linearCfg -> {
+            listener.linear(linearCfg);
+            if (postProcessing == null) {
+                finished.add(finish(linearCfg));
+            } else {
+                PostProcessingTask task = new PostProcessingTask(linearCfg, finished);
+                pending.add(task);
+                postProcessing.execute(task);
+            }
+        };
+        SolveResult.Limit limitReached = null;
+        boolean done = false;
+        try {
+            if (parallelism == 1 || searchStrategy == Problem.SearchStrategy.BEST_FIRST) {
+                linearSequential(onLinear);
+            } else {
+                linearParallel(onLinear);
+            }
+            for (PostProcessingTask task : pending) {
+                task.join();
+            }
+            done = true;
+        } catch (Budget.Exhausted e) {
+            limitReached = e.limit;
+        } finally {
+            if (!done) {
+                budget.stop();
+                for (PostProcessingTask task : pending) {
+                    task.cancel();
+                }
+            }
         }
-        log.info(fuzzySystem.practicalRestrictionType().correspondence ?
-                "Therefore, we get the minimal complete set of generalizations." :
-                "Therefore, we are not guaranteed to get the minimal complete set of generalizations.");
+        Set<Solution> solutions = new HashSet<>(finished);
+        endTime = System.nanoTime();
+        
+        SolveResult result = new SolveResult(solutions, limitReached, stats());
+        listener.finished(result);
+        return result;
+    }
+    
+    /**
+     * Lazy alternative to {@linkplain Algorithm#run()}:
+     * <br>
+     * Each time a branch of the main loop becomes linear, it is post processed on its own, and its {@linkplain Solution} is emitted right away.
+     * Branches which haven't been reached by the time the stream is abandoned are never explored.
+     * <br><br>
+     * The stream always runs on the calling thread, in the order given by {@linkplain Problem#searchStrategy(Problem.SearchStrategy)}
+     * ({@linkplain Problem.SearchStrategy#DEPTH_FIRST depth-first} usually reaches the first solution sooner,
+     * and {@linkplain Problem.SearchStrategy#BEST_FIRST best-first} emits the best solutions first).
+     * <br><br>
+     * If one of the problem's limits is reached (see {@linkplain Problem#timeLimit(java.time.Duration)}),
+     * the stream throws an {@linkplain IllegalStateException} instead of emitting the next solution.
+     * <br><br>
+     * The {@linkplain SolverListener} is told that the run is {@linkplain SolverListener#finished(SolveResult) finished}
+     * once the stream is exhausted (or reaches a limit), with the solutions emitted so far.
+     */
+    public Stream<Solution> stream() {
+        listener.solving(lhs, rhs, lambda, fuzzySystem);
+        budget.start();
+        startTime = System.nanoTime();
         
-        // *** APPLY RULES ***
-        Queue<Config> linearConfigs = new ArrayDeque<>();
-        Queue<Config> branches = new ArrayDeque<>();
+        Queue<Config> branches = frontier();
         branches.add(new Config(lhs, rhs));
+        configsCreated.increment();
         
-        BRANCHING:
+        Iterator<Solution> solutions = new Iterator<Solution>() {
+            private Solution next = null;
+            private int emitted = 0;
+            private final Set<Solution> emittedSolutions = new HashSet<>();
+            private boolean done = false;
+            private SolveResult.Limit limitReached = null;
+            
+            @Override
+            public boolean hasNext() {
+                if (limitReached != null) {
+                    throw Panic.state("Reached limit [%s] after %s solutions", limitReached, emitted);
+                }
+                if (next == null && !done) {
+                    try {
+                        Config linearCfg = topK == 0 || emitted < topK ? nextLinear(branches) : null;
+                        if (linearCfg != null) {
+                            next = finish(linearCfg);
+                            emittedSolutions.add(next);
+                            emitted++;
+                        } else {
+                            done(null);
+                        }
+                    } catch (Budget.Exhausted e) {
+                        limitReached = e.limit;
+                        done(limitReached);
+                        throw Panic.state("Reached limit [%s] after %s solutions", limitReached, emitted);
+                    }
+                }
+                return next != null;
+            }
+            
+            private void done(SolveResult.Limit limitReached) {
+                done = true;
+                endTime = System.nanoTime();
+                listener.finished(new SolveResult(emittedSolutions, limitReached, stats()));
+            }
+            
+            @Override
+            public Solution next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Solution solution = next;
+                next = null;
+                return solution;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions, Spliterator.NONNULL), false);
+    }
+    
+    /**
+     * Snapshot of what the run did so far - e.g. to check on a {@linkplain Algorithm#stream()} which is still being consumed.
+     * <br>
+     * {@linkplain Algorithm#runDetailed()} already includes the final stats in its result.
+     */
+    public SolveStats stats() {
+        Map<SolveStats.Metric, Long> values = new EnumMap<>(SolveStats.Metric.class);
+        values.put(SolveStats.Metric.SOLVES, 1L);
+        values.put(SolveStats.Metric.CONFIGS_CREATED, configsCreated.sum());
+        values.put(SolveStats.Metric.CONFIGS_EXPLORED, budget.configs());
+        values.put(SolveStats.Metric.TRIVIAL, trivial.sum());
+        values.put(SolveStats.Metric.DECOMPOSE, decompose.sum());
+        values.put(SolveStats.Metric.SOLVE, solve.sum());
+        values.put(SolveStats.Metric.MAX_FRONTIER, maxFrontier.get());
+        values.put(SolveStats.Metric.CONJUNCTIONS, conjunctions.sum());
+        values.put(SolveStats.Metric.STATES, budget.states());
+        values.put(SolveStats.Metric.DECOMPOSITION_MEMO_HITS, decompositionMemo.hits());
+        values.put(SolveStats.Metric.DECOMPOSITION_MEMO_MISSES, decompositionMemo.misses());
+        values.put(SolveStats.Metric.CONJUNCTION_MEMO_HITS, conjunctionMemo.hits());
+        values.put(SolveStats.Metric.CONJUNCTION_MEMO_MISSES, conjunctionMemo.misses());
+        if (fuzzySystem instanceof PredefinedFuzzySystem) {
+            values.put(SolveStats.Metric.PROXIMATES_MEMO_HITS, ((PredefinedFuzzySystem) fuzzySystem).proximatesMemoHits());
+            values.put(SolveStats.Metric.PROXIMATES_MEMO_MISSES, ((PredefinedFuzzySystem) fuzzySystem).proximatesMemoMisses());
+        }
+        values.put(SolveStats.Metric.LINEAR_NANOS, linearNanos.sum());
+        values.put(SolveStats.Metric.EXPAND_NANOS, expandNanos.sum());
+        values.put(SolveStats.Metric.MERGE_NANOS, mergeNanos.sum());
+        values.put(SolveStats.Metric.WITNESS_NANOS, witnessNanos.sum());
+        if (startTime != 0) {
+            values.put(SolveStats.Metric.TOTAL_NANOS, (endTime != 0 ? endTime : System.nanoTime()) - startTime);
+        }
+        return new SolveStats(values);
+    }
+    
+    /**
+     * Explores the branches one at a time, in the order given by {@linkplain Problem#searchStrategy(Problem.SearchStrategy)}.
+     * <br><br>
+     * Breadth-first keeps the whole frontier of the search tree in memory.
+     * Depth-first only keeps the unexplored siblings along the current path,
+     * i.e. roughly <b>term depth * branching factor</b> configs.
+     * <br><br>
+     * With {@linkplain Problem#topK(int)}, we stop as soon as we have <b>k</b> linear configs (see {@linkplain Algorithm#frontier()}).
+     */
+    private void linearSequential(Consumer<Config> onLinear) {
+        Queue<Config> branches = frontier();
+        branches.add(new Config(lhs, rhs));
+        configsCreated.increment();
+        
+        int linearCount = 0;
+        Config linearCfg;
+        while ((topK == 0 || linearCount < topK) && (linearCfg = nextLinear(branches)) != null) {
+            onLinear.accept(linearCfg);
+            linearCount++;
+        }
+    }
+    
+    /**
+     * The queue of open branches, which determines the order they're explored in:
+     * <ul>
+     *     <li> breadth-first: FIFO
+     *     <li> depth-first: LIFO
+     *     <li> best-first: highest <b>min(α1, α2)</b> first
+     * </ul>
+     * For best-first, note that a {@linkplain Config Config's} alphas only ever decrease as it's explored further,
+     * since every DECOMPOSE step combines them with another proximity via the t-norm, and <b>T(a, b) <= min(a, b)</b>.
+     * So the linear configs come out in order of their final alphas,
+     * and the first <b>k</b> of them are the <b>k</b> best - no open config can beat any of them.
+     */
+    private Queue<Config> frontier() {
+        switch (searchStrategy) {
+            case DEPTH_FIRST:
+                return Collections.asLifoQueue(new ArrayDeque<>());
+            case BEST_FIRST:
+                return new PriorityQueue<>(Comparator.comparingDouble((Config cfg) -> Math.min(cfg.alpha1, cfg.alpha2)).reversed());
+            default:
+                return new ArrayDeque<>();
+        }
+    }
+    
+    /**
+     * Keeps exploring the given branches, until one of them becomes linear.
+     *
+     * @return the linear {@linkplain Config}, or <b>null</b> if there are no branches left
+     */
+    private Config nextLinear(Queue<Config> branches) {
         while (!branches.isEmpty()) {
             assert Data.isSet(branches);
             Config cfg = branches.remove();
-            while (!cfg.A.isEmpty()) {
-                AUT aut = cfg.A.remove();
-                // TRIVIAL
-                if (aut.T1.isEmpty() && aut.T2.isEmpty()) {
-                    cfg.substitutions.add(new Substitution(aut.variable, ANON));
-                    log.debug("TRI => {}", cfg);
-                    continue;
-                }
-                // DECOMPOSE
-                Queue<Config> children = decompose(aut, cfg);
-                if (!children.isEmpty()) {
-                    branches.addAll(children);
-                    if (log.isDebugEnabled()) {
-                        log.debug("DEC => {}", Data.str(children));
+            budget.config();
+            Deque<Config> children = new ArrayDeque<>();
+            long start = System.nanoTime();
+            boolean linear = applyRules(cfg, children);
+            linearNanos.add(System.nanoTime() - start);
+            if (linear) {
+                return cfg;
+            }
+            if (searchStrategy == Problem.SearchStrategy.DEPTH_FIRST) {
+                // push in reverse, so the first child gets explored first
+                children.descendingIterator().forEachRemaining(branches::add);
+            } else {
+                branches.addAll(children);
+            }
+            maxFrontier.accumulate(branches.size());
+        }
+        return null;
+    }
+    
+    /**
+     * Explores the branches on a {@linkplain ForkJoinPool} with {@linkplain Problem#parallelism(int)} workers.
+     * <br>
+     * Since the {@linkplain Config Configs} don't share any mutable state, each branch can be handed off as its own task.
+     * <br>
+     * Linear configs are handed to <b>onLinear</b> on the worker which found them.
+     * <br><br>
+     * If a worker fails (or reaches a limit), the others stop at their next report to the {@linkplain Budget}.
+     * Either way, the pool is torn down before we return, so no worker outlives the run.
+     */
+    private void linearParallel(Consumer<Config> onLinear) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            configsCreated.increment();
+            forkedBranches.incrementAndGet();
+            pool.invoke(new BranchTask(new Config(lhs, rhs), onLinear));
+        } catch (RuntimeException | Error e) {
+            budget.stop();
+            throw e;
+        } finally {
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+    }
+    
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private class BranchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Config cfg;
+        private final Consumer<Config> onLinear;
+        
+        BranchTask(Config cfg, Consumer<Config> onLinear) {
+            this.cfg = cfg;
+            this.onLinear = onLinear;
+        }
+        
+        @Override
+        protected void compute() {
+            forkedBranches.decrementAndGet();
+            Queue<BranchTask> forked = new ArrayDeque<>();
+            Config current = cfg;
+            while (current != null) {
+                budget.config();
+                Deque<Config> children = new ArrayDeque<>();
+                long start = System.nanoTime();
+                boolean linear = applyRules(current, children);
+                linearNanos.add(System.nanoTime() - start);
+                if (linear) {
+                    onLinear.accept(current);
+                    current = null;
+                } else {
+                    // fork off all but one child, and keep working on that one ourselves
+                    current = children.removeLast();
+                    maxFrontier.accumulate(forkedBranches.addAndGet(children.size()));
+                    for (Config child : children) {
+                        BranchTask task = new BranchTask(child, onLinear);
+                        task.fork();
+                        forked.add(task);
                     }
-                    continue BRANCHING;
                 }
-                // SOLVE
-                cfg.S.add(aut);
-                log.debug("SOL => {}", cfg);
             }
-            linearConfigs.add(cfg);
+            forked.forEach(ForkJoinTask::join);
         }
+    }
+    
+    /**
+     * Post processes a linear {@linkplain Config} on the {@linkplain Problem#postProcessing(Executor) post processing executor}.
+     * <br><br>
+     * The executor may belong to the caller, so queued tasks can't be taken back once the run is over.
+     * Instead, {@linkplain PostProcessingTask#cancel()} turns a task which hasn't started yet into a no-op,
+     * and waits for one which has.
+     */
+    private class PostProcessingTask implements Runnable {
+        private static final int QUEUED = 0, RUNNING = 1, SKIPPED = 2;
+        
+        private final Config linearCfg;
+        private final Queue<Solution> finished;
+        private final AtomicInteger status = new AtomicInteger(QUEUED);
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
         
-        assert Data.isSet(linearConfigs);
-        if (!doMerge && !giveWitnesses) {
-            return generateSolutions(linearConfigs);
+        PostProcessingTask(Config linearCfg, Queue<Solution> finished) {
+            this.linearCfg = linearCfg;
+            this.finished = finished;
         }
         
-        // *** POST PROCESS ***
-        log.info(Data.log(ANSI.yellow("LINEAR:"), linearConfigs));
+        @Override
+        public void run() {
+            if (!status.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            try {
+                finished.add(finish(linearCfg));
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        }
         
-        // EXPAND
-        Queue<Config> expandedConfigs = Data.mapToQueue(linearConfigs, this::expand);
-        assert Data.isSet(expandedConfigs);
-        if (!doMerge) {
-            return generateSolutions(expandedConfigs);
+        /**
+         * Waits for the task to be done, and rethrows its failure
+         */
+        void join() {
+            try {
+                done.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
         }
-        log.info(Data.log(ANSI.yellow("EXPANDED:"), expandedConfigs));
         
-        // MERGE
-        Queue<Config> mergedConfigs = Data.mapToQueue(expandedConfigs, this::merge);
-        assert Data.isSet(mergedConfigs);
-        return generateSolutions(mergedConfigs);
+        /**
+         * Skips the task if it hasn't started yet, or else waits for it to be done (ignoring its failure)
+         */
+        void cancel() {
+            if (status.compareAndSet(QUEUED, SKIPPED)) {
+                return;
+            }
+            try {
+                done.join();
+            } catch (CompletionException | CancellationException ignored) {
+            }
+        }
+    }
+    
+    /**
+     * Applies the rules <b>TRIVIAL</b>, <b>DECOMPOSE</b> and <b>SOLVE</b> to the AUTs of the given {@linkplain Config}, until either
+     * <ul>
+     *     <li> <b>DECOMPOSE</b> branches, in which case the children are added to <b>branches</b>, and we return <b>false</b>
+     *     <li> no AUTs remain, in which case the config is linear, and we return <b>true</b>
+     * </ul>
+     */
+    private boolean applyRules(Config cfg, Collection<Config> branches) {
+        while (!cfg.A.isEmpty()) {
+            AUT aut = cfg.removeA();
+            // TRIVIAL
+            if (aut.T1.isEmpty() && aut.T2.isEmpty()) {
+                cfg.addSubstitution(new Substitution(aut.variable, ANON));
+                trivial.increment();
+                listener.trivial(cfg);
+                continue;
+            }
+            // DECOMPOSE
+            Queue<Config> children = decompose(aut, cfg);
+            if (!children.isEmpty()) {
+                branches.addAll(children);
+                decompose.increment();
+                // the last child is the original config
+                configsCreated.add(children.size() - 1);
+                listener.decomposed(children);
+                return false;
+            }
+            // SOLVE
+            cfg.addS(aut);
+            solve.increment();
+            listener.solved(cfg);
+        }
+        return true;
     }
     
     // TODO document
     private Queue<Config> decompose(AUT aut, Config cfg) {
+        DecompositionMemo.Outcome outcome =
+                decompositionMemo.memorized(aut, cfg.alpha1, cfg.alpha2, () -> decomposition(aut, cfg.alpha1, cfg.alpha2));
+        
         Queue<Config> children = new ArrayDeque<>();
+        if (outcome.mappedVariable != null) {
+            cfg.addSubstitution(new Substitution(aut.variable, outcome.mappedVariable));
+            children.add(cfg);
+            return children;
+        }
+        
+        Iterator<DecompositionMemo.Decomposition> decompositions = outcome.decompositions.iterator();
+        while (decompositions.hasNext()) {
+            DecompositionMemo.Decomposition decomposition = decompositions.next();
+            // apply DEC (the last child can take over the original config)
+            Config child = decompositions.hasNext() ? cfg.copy() : cfg;
+            child.alpha1 = decomposition.alpha1;
+            child.alpha2 = decomposition.alpha2;
+            List<Term> hArgs = Data.list(fuzzySystem.arity(decomposition.h), idx -> {
+                int yi = child.freshVar();
+                child.addA(new AUT(yi, decomposition.Q1.get(idx), decomposition.Q2.get(idx)));
+                return new VariableTerm(yi);
+            });
+            child.addSubstitution(new Substitution(aut.variable, TermFactory.functionTerm(decomposition.h, hArgs)));
+            children.add(child);
+        }
+        return children;
+    }
+    
+    /**
+     * Finds the common proximates <b>h</b> of <b>T1</b> and <b>T2</b>, which <b>aut</b> can be decomposed into,
+     * given the current alphas.
+     * <br>
+     * The outcome only depends on the AUT's terms and the alphas, so it can be shared via the {@linkplain DecompositionMemo}.
+     */
+    private DecompositionMemo.Outcome decomposition(AUT aut, float beta1, float beta2) {
         ArraySet<GroundishTerm> merged = ArraySet.merged(aut.T1, aut.T2);
-        ArraySet<String> commonProximates = fuzzySystem.commonProximates(merged);
-        log.trace("  {} common proximates: {}", merged, commonProximates);
-
-        if (commonProximates.size() == 1 && Data.any(merged, term -> term instanceof MappedVariableTerm)) {
+        int[] commonProximates = fuzzySystem.commonProximateSymbols(merged);
+        if (log.isTraceEnabled()) {
+            log.trace("  {} common proximates: {}", merged, SymbolTable.names(commonProximates));
+        }
+        
+        if (commonProximates.length == 1 && Data.any(merged, term -> term instanceof MappedVariableTerm)) {
             // special case: MappedVariableTerm as common proximate
             assert merged.size() == 1;
-            cfg.substitutions.add(new Substitution(aut.variable, Data.getAny(merged)));
-            children.add(cfg);
-            return children;
+            return DecompositionMemo.Outcome.mappedVariable(Data.getAny(merged));
         }
         
-        for (String h : commonProximates) {
+        List<DecompositionMemo.Decomposition> decompositions = new ArrayList<>(commonProximates.length);
+        for (int h : commonProximates) {
             // map arguments
-            Pair<List<ArraySet<GroundishTerm>>, Float> T1Mapped = mapArgs(h, aut.T1, cfg.alpha1);
+            Pair<List<ArraySet<GroundishTerm>>, Float> T1Mapped = mapArgs(h, aut.T1, beta1);
             List<ArraySet<GroundishTerm>> Q1 = T1Mapped.left;
             float alpha1 = T1Mapped.right;
             if (alpha1 < lambda) {
-                log.trace("  {} -> α1 < λ", h);
+                log.trace("  {} -> α1 < λ", SymbolTable.name(h));
                 continue;
             }
-            Pair<List<ArraySet<GroundishTerm>>, Float> T2Mapped = mapArgs(h, aut.T2, cfg.alpha2);
+            Pair<List<ArraySet<GroundishTerm>>, Float> T2Mapped = mapArgs(h, aut.T2, beta2);
             List<ArraySet<GroundishTerm>> Q2 = T2Mapped.left;
             float alpha2 = T2Mapped.right;
             if (alpha2 < lambda) {
-                log.trace("  {} -> α2 < λ", h);
+                log.trace("  {} -> α2 < λ", SymbolTable.name(h));
                 continue;
             }
             assert Q1 != null && Q2 != null;
             if (!fuzzySystem.practicalRestrictionType().mapping) {
                 if (Data.any(Q1, q -> !consistent(q)) || Data.any(Q2, q -> !consistent(q))) {
-                    log.trace("  {} -> inconsistent: {}  {}", h, Q1, Q2);
+                    log.trace("  {} -> inconsistent: {}  {}", SymbolTable.name(h), Q1, Q2);
                     continue;
                 }
             }
-            // apply DEC
-            Config child = commonProximates.size() == 1 ? cfg : cfg.copy();
-            child.alpha1 = alpha1;
-            child.alpha2 = alpha2;
-            List<Term> hArgs = Data.list(fuzzySystem.arity(h), idx -> {
-                int yi = child.freshVar();
-                child.A.add(new AUT(yi, Q1.get(idx), Q2.get(idx)));
-                return new VariableTerm(yi);
-            });
-            child.substitutions.add(new Substitution(aut.variable, new FunctionTerm(h, hArgs)));
-            children.add(child);
+            decompositions.add(new DecompositionMemo.Decomposition(h, Q1, Q2, alpha1, alpha2));
         }
-        return children;
+        return DecompositionMemo.Outcome.decompositions(decompositions);
     }
     
-    // TODO document
+    /**
+     * Replaces <b>T1</b> and <b>T2</b> of each solved AUT with their special conjunctions.
+     * <br>
+     * The AUTs are independent of each other (the conjunctions are ground, so they can share variable names),
+     * so they're expanded in parallel if we're {@linkplain Algorithm#parallelHere() running in parallel}.
+     */
     private Config expand(Config linearCfg) {
         final int freshVar = linearCfg.freshVar();
         
-        Queue<AUT> expanded = Data.mapToQueue(linearCfg.S, aut -> {
+        Stream<AUT> solved = linearCfg.S.stream();
+        List<AUT> expanded = (parallelHere() ? solved.parallel() : solved).map(aut -> {
             Pair<ArraySet<GroundishTerm>, Integer> E1 = conjoin(aut.T1, freshVar);
             Pair<ArraySet<GroundishTerm>, Integer> E2 = conjoin(aut.T2, E1.right);
             assert !E1.left.isEmpty() && !E2.left.isEmpty();
             return new AUT(aut.variable, E1.left, E2.left);
-        });
+        }).collect(Collectors.toList());
         return linearCfg.copyWithNewS(expanded);
     }
     
-    // TODO document
+    /**
+     * Whether post processing should split up its work further.
+     * <br>
+     * That's the case if the current thread is a worker of a {@linkplain ForkJoinPool} which we're allowed to use,
+     * i.e. of a {@linkplain Problem#parallelism(int) parallel} main loop, or of a {@linkplain Problem#postProcessing(Executor) post processing} pool.
+     * Parallel streams then run on that same pool.
+     */
+    private boolean parallelHere() {
+        return (parallelism > 1 || postProcessing instanceof ForkJoinPool) && ForkJoinTask.inForkJoinPool();
+    }
+    
+    /**
+     * Greedily merges the AUTs of an expanded {@linkplain Config}:
+     * each AUT in turn collects all remaining AUTs which it can be conjoined with, and the collected AUTs share a fresh variable.
+     * <br><br>
+     * Attempts which the {@linkplain MergeGraph} rules out are skipped, which doesn't change the outcome,
+     * since the graph only rules out attempts which would fail.
+     */
     private Config merge(Config expandedCfg) {
-        Queue<AUT> remaining = new ArrayDeque<>(expandedCfg.S);
+        List<AUT> auts = new ArrayList<>(expandedCfg.S);
+        MergeGraph graph = new MergeGraph(auts, fuzzySystem, this::consistent, parallelHere());
+        
+        Queue<Integer> remaining = new ArrayDeque<>(Data.list(auts.size(), idx -> idx));
         Queue<AUT> merged = new ArrayDeque<>();
         
         while (!remaining.isEmpty()) {
             // pick one AUT as 'collector'
-            AUT collector = remaining.remove();
-            Queue<AUT> notCollected = new ArrayDeque<>();
+            int collectorIdx = remaining.remove();
+            AUT collector = auts.get(collectorIdx);
+            Queue<Integer> notCollected = new ArrayDeque<>();
             Queue<Integer> collectedVars = new ArrayDeque<>();
             // need to manually keep track of 'fresh var'
             int freshVar = expandedCfg.peekVar();
             // try merge on each remaining AUT
-            for (AUT candidate : remaining) {
+            for (int candidateIdx : remaining) {
+                if (!collectedVars.isEmpty() ? !graph.mayMerge(collector, candidateIdx) : !graph.adjacent(collectorIdx, candidateIdx)) {
+                    notCollected.add(candidateIdx);
+                    continue;
+                }
+                AUT candidate = auts.get(candidateIdx);
                 Pair<ArraySet<GroundishTerm>, Integer> mergedLHS =
                         conjoin(ArraySet.merged(collector.T1, candidate.T1), freshVar);
                 Pair<ArraySet<GroundishTerm>, Integer> mergedRHS = mergedLHS.left.isEmpty() ? mergedLHS :
                         conjoin(ArraySet.merged(collector.T2, candidate.T2), mergedLHS.right);
                 
                 if (mergedLHS.left.isEmpty() || mergedRHS.left.isEmpty()) {
-                    notCollected.add(candidate);
+                    notCollected.add(candidateIdx);
                 } else {
                     collectedVars.add(candidate.variable);
                     collector = new AUT(collector.variable, mergedLHS.left, mergedRHS.left);
@@ -251,7 +712,9 @@ public class Algorithm {
             } else {
                 collectedVars.add(collector.variable);
                 final VariableTerm y = new VariableTerm(freshVar);
-                collectedVars.forEach(var -> expandedCfg.substitutions.add(new Substitution(var, y)));
+                // reserve 'y', so the next group doesn't pick the same variable
+                expandedCfg.freshVar = y.var;
+                collectedVars.forEach(var -> expandedCfg.addSubstitution(new Substitution(var, y)));
                 merged.add(new AUT(y.var, collector.T1, collector.T2));
             }
         }
@@ -270,55 +733,146 @@ public class Algorithm {
      * .... then .... Q = [{a}, {b,c}]
      * </code>
      */
-    private Pair<List<ArraySet<GroundishTerm>>, Float> mapArgs(String h, ArraySet<GroundishTerm> T, float beta) {
+    private Pair<List<ArraySet<GroundishTerm>>, Float> mapArgs(int h, ArraySet<GroundishTerm> T, float beta) {
         int hArity = fuzzySystem.arity(h);
         List<Set<GroundishTerm>> Q = Data.list(hArity, idx -> new HashSet<>());
         for (GroundishTerm t : T) {
-            ProximityRelation htRelation = fuzzySystem.proximityRelation(h, t.head());
+            ProximityRelation htRelation = fuzzySystem.proximityRelation(h, t.symbol());
             beta = tNorm.apply(beta, htRelation.proximity);
             if (beta < lambda) {
                 return Pair.of(null, beta);
             }
             for (int hIdx = 0; hIdx < hArity; hIdx++) {
-                for (int termIdx : htRelation.argMapping.get(hIdx)) {
-                    Q.get(hIdx).add(t.arguments().get(termIdx));
+                for (int n = 0, count = htRelation.mappedArgCount(hIdx); n < count; n++) {
+                    Q.get(hIdx).add(t.arguments().get(htRelation.mappedArg(hIdx, n)));
                 }
             }
         }
         return Pair.of(Data.mapToList(Q, ArraySet::of), beta);
     }
     
-    private Set<Solution> generateSolutions(Collection<Config> configs) {
-        Set<Solution> solutions = configs.stream().map(cfg -> {
-            Term term = Substitution.applyAll(cfg.substitutions, VariableTerm.VAR_0);
-            Pair<Witness, Witness> witnesses = giveWitnesses ? generateWitnesses(cfg, term) : Pair.of(null, null);
-            return new Solution(term, witnesses.left, witnesses.right, cfg.alpha1, cfg.alpha2);
-        }).collect(Collectors.toSet());
-        
-        log.info(Data.log(ANSI.yellow("SOLUTIONS:"), solutions));
-        log.info("██");
-        return solutions;
+    /**
+     * Post processes a single linear {@linkplain Config} into its {@linkplain Solution}.
+     * <br><br>
+     * <b>EXPAND</b> is only needed if we want to merge or give witnesses.
+     */
+    private Solution finish(Config linearCfg) {
+        Config cfg = linearCfg;
+        if (doMerge || giveWitnesses) {
+            long start = System.nanoTime();
+            cfg = expand(cfg);
+            expandNanos.add(System.nanoTime() - start);
+            listener.expanded(cfg);
+            if (doMerge) {
+                start = System.nanoTime();
+                cfg = merge(cfg);
+                mergeNanos.add(System.nanoTime() - start);
+                listener.merged(cfg);
+            }
+        }
+        long start = System.nanoTime();
+        Solution solution = generateSolution(cfg);
+        witnessNanos.add(System.nanoTime() - start);
+        listener.solution(solution);
+        return solution;
+    }
+    
+    private Solution generateSolution(Config cfg) {
+        Term term = Substitution.applyAll(cfg.substitutions, VariableTerm.VAR_0);
+        Pair<Witness, Witness> witnesses = giveWitnesses ? generateWitnesses(cfg, term) : Pair.of(null, null);
+        return new Solution(term, witnesses.left, witnesses.right, cfg.alpha1, cfg.alpha2);
     }
     
+    /**
+     * Each variable of the generalization <b>r</b> is the variable of exactly one (expanded) AUT in <b>S</b>,
+     * whose ground <b>T1</b> and <b>T2</b> are its witness substitutions.
+     * <br>
+     * The witnesses just reference those term sets (see {@linkplain Witness#Witness(int[], List)}).
+     */
     private Pair<Witness, Witness> generateWitnesses(Config cfg, Term r) {
-        Map<Integer, Set<GroundishTerm>> W1 = new HashMap<>();
-        Map<Integer, Set<GroundishTerm>> W2 = new HashMap<>();
-        for (int var : r.namedVariables()) {
-            Pair<Set<GroundishTerm>, Set<GroundishTerm>> applied = AUT.substituteAll(cfg.S, new VariableTerm(var));
-            W1.put(var, applied.left);
-            W2.put(var, applied.right);
+        Map<Integer, AUT> solved = new HashMap<>();
+        for (AUT aut : cfg.S) {
+            solved.putIfAbsent(aut.variable, aut);
         }
-        return Pair.of(new Witness(W1), new Witness(W2));
+        int[] variables = r.namedVariables().stream().mapToInt(Integer::intValue).sorted().toArray();
+        List<ArraySet<GroundishTerm>> W1 = new ArrayList<>(variables.length);
+        List<ArraySet<GroundishTerm>> W2 = new ArrayList<>(variables.length);
+        for (int var : variables) {
+            AUT aut = solved.get(var);
+            if (aut == null) {
+                throw Panic.state("Variable %s of generalization %s has no solved AUT to take its witnesses from", var, r);
+            }
+            W1.add(aut.T1);
+            W2.add(aut.T2);
+        }
+        return Pair.of(new Witness(variables, W1), new Witness(variables, W2));
     }
     
     // *** special conjunction ***
     
+    /**
+     * Checks if the special conjunction of <b>terms</b> has at least one solution.
+     * <br>
+     * Sets containing two heads which aren't {@linkplain FuzzySystem#compatible(int, int) compatible} are rejected right away,
+     * everything else is memorized via the {@linkplain ConjunctionMemo}.
+     */
     public boolean consistent(ArraySet<GroundishTerm> terms) {
+        if (!pairwiseCompatible(terms)) {
+            return false;
+        }
+        return conjunctionMemo.consistent(terms, () -> doConjoin(terms, VariableTerm.VAR_0.var, true) == IS_CONSISTENT);
+    }
+    
+    /**
+     * Turns off the {@linkplain DecompositionMemo} for this run, so every <b>DECOMPOSE</b> is computed from scratch.
+     * <br>
+     * Used as a reference in tests. Must be called before the run starts.
+     */
+    Algorithm withoutDecompositionMemo() {
+        decompositionMemo = DecompositionMemo.disabled();
+        return this;
+    }
+    
+    /**
+     * Same as {@linkplain Algorithm#consistent(ArraySet)}, but always runs the full special conjunction,
+     * without the pairwise compatibility shortcut or the memory.
+     * <br>
+     * Used as a reference in tests.
+     */
+    boolean consistentUnoptimized(ArraySet<GroundishTerm> terms) {
         return doConjoin(terms, VariableTerm.VAR_0.var, true) == IS_CONSISTENT;
     }
     
-    private Pair<ArraySet<GroundishTerm>, Integer> conjoin(ArraySet<GroundishTerm> terms, int freshVar) {
-        Pair<ArraySet<GroundishTerm>, Integer> result = doConjoin(terms, freshVar, false);
+    /**
+     * Necessary condition for consistency: every pair of (non-ANON) heads in <b>terms</b> has a common proximate.
+     */
+    boolean pairwiseCompatible(ArraySet<GroundishTerm> terms) {
+        int[] heads = new int[terms.size()];
+        int count = 0;
+        for (GroundishTerm term : terms) {
+            if (!ANON.equals(term)) {
+                heads[count++] = term.symbol();
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (heads[i] != heads[j] && !fuzzySystem.compatible(heads[i], heads[j])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Computes the special conjunction of <b>terms</b>, with new variables numbered from <b>freshVar</b>.
+     * <br>
+     * Memorized via the {@linkplain ConjunctionMemo}.
+     *
+     * @return the conjunction, and the next fresh variable
+     */
+    Pair<ArraySet<GroundishTerm>, Integer> conjoin(ArraySet<GroundishTerm> terms, int freshVar) {
+        Pair<ArraySet<GroundishTerm>, Integer> result = conjunctionMemo.conjoin(terms, freshVar, baseVar -> doConjoin(terms, baseVar, false));
         assert result != null;
         return result;
     }
@@ -327,6 +881,7 @@ public class Algorithm {
     
     // TODO document
     private Pair<ArraySet<GroundishTerm>, Integer> doConjoin(ArraySet<GroundishTerm> terms, int baseVar, boolean consistencyCheck) {
+        conjunctions.increment();
         int freshVar = baseVar;
         Queue<State> branches = new ArrayDeque<>();
         branches.add(new State(terms, freshVar));
@@ -335,8 +890,9 @@ public class Algorithm {
         BRANCHING:
         while (!branches.isEmpty()) {
             State state = branches.remove();
+            budget.state();
             while (!state.expressions.isEmpty()) {
-                Expression expression = state.expressions.remove();
+                Expression expression = state.removeExpression();
                 // by explicitly ignore ANON, we don't need to worry about defining R.proximityClass(ANON)
                 // we might also get to "cheat" and apply REMOVE where we couldn't otherwise
                 ArraySet<GroundishTerm> nonAnonTerms = expression.T.filter(term -> !ANON.equals(term));
@@ -344,33 +900,33 @@ public class Algorithm {
                 if (consistencyCheck && nonAnonTerms.size() <= 1) {
                     continue;
                 } else if (nonAnonTerms.isEmpty()) {
-                    state.s.add(new Substitution(expression.variable, ANON));
+                    state.addSubstitution(new Substitution(expression.variable, ANON));
                     continue;
                 }
                 // REDUCE
-                ArraySet<String> commonProximates = fuzzySystem.commonProximates(nonAnonTerms);
+                int[] commonProximates = fuzzySystem.commonProximateSymbols(nonAnonTerms);
                 
-                if (commonProximates.size() == 1 && Data.any(nonAnonTerms, term -> term instanceof MappedVariableTerm)) {
+                if (commonProximates.length == 1 && Data.any(nonAnonTerms, term -> term instanceof MappedVariableTerm)) {
                     // special case: MappedVariableTerm as common proximate
                     assert nonAnonTerms.size() == 1;
-                    state.s.add(new Substitution(expression.variable, Data.getAny(nonAnonTerms)));
+                    state.addSubstitution(new Substitution(expression.variable, Data.getAny(nonAnonTerms)));
                     branches.add(state);
                 } else {
-                    for (String h : commonProximates) {
+                    for (int h : commonProximates) {
                         List<ArraySet<GroundishTerm>> Q = mapArgs(h, nonAnonTerms, 1.0f).left;
                         assert Q != null;
-                        State childState = commonProximates.size() == 1 ? state : state.copy();
+                        State childState = commonProximates.length == 1 ? state : state.copy();
                         
                         List<Term> hArgs = Data.list(fuzzySystem.arity(h), idx -> {
                             int yi = childState.freshVar();
-                            childState.expressions.add(new Expression(yi, Q.get(idx)));
+                            childState.addExpression(new Expression(yi, Q.get(idx)));
                             return new VariableTerm(yi);
                         });
                         
                         freshVar = Math.max(freshVar, childState.peekVar());
-                        Term hTerm = new FunctionTerm(h, hArgs);
+                        Term hTerm = TermFactory.functionTerm(h, hArgs);
                         if (!consistencyCheck) {
-                            childState.s.add(new Substitution(expression.variable, hTerm));
+                            childState.addSubstitution(new Substitution(expression.variable, hTerm));
                         }
                         branches.add(childState);
                     }
@@ -0,0 +1,118 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.SolveResult;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps track of the limits of an {@linkplain Algorithm} run
+ * (see {@linkplain Problem#timeLimit(Duration)} and the other limits next to it).
+ * <br><br>
+ * The main loop reports every {@linkplain Config} it expands, and the special conjunction every {@linkplain State}.
+ * Once a limit is reached, the report throws {@linkplain Exhausted}, which unwinds the run back to {@linkplain Algorithm#runDetailed()}.
+ * The budget stays exhausted from then on, so the other workers of a
+ * {@linkplain Problem#parallelism(int) parallel} run stop at their next report as well.
+ */
+class Budget {
+    private final Duration timeLimit;
+    private final long maxConfigs, maxStates;
+    private final BooleanSupplier cancellation;
+    
+    private final AtomicLong configs = new AtomicLong(), states = new AtomicLong();
+    private volatile long deadline;
+    private volatile Thread caller = null;
+    private volatile SolveResult.Limit exhausted = null;
+    
+    Budget(Problem problem) {
+        timeLimit = problem.getTimeLimit();
+        maxConfigs = problem.getMaxConfigs();
+        maxStates = problem.getMaxStates();
+        cancellation = problem.getCancellation();
+    }
+    
+    /**
+     * Starts the clock for the time limit, and binds the budget to the calling thread's interrupt flag.
+     * <br>
+     * Until then, only the counting limits apply.
+     */
+    void start() {
+        if (timeLimit != null) {
+            deadline = System.nanoTime() + timeLimit.toNanos();
+        }
+        caller = Thread.currentThread();
+    }
+    
+    void config() {
+        if (configs.incrementAndGet() > maxConfigs) {
+            exhaust(SolveResult.Limit.CONFIGS);
+        }
+        check();
+    }
+    
+    void state() {
+        if (states.incrementAndGet() > maxStates) {
+            exhaust(SolveResult.Limit.STATES);
+        }
+        check();
+    }
+    
+    long configs() {
+        return configs.get();
+    }
+    
+    long states() {
+        return states.get();
+    }
+    
+    private void check() {
+        if (exhausted != null) {
+            throw new Exhausted(exhausted);
+        }
+        Thread caller = this.caller;
+        if (caller == null) {
+            return;
+        }
+        if (timeLimit != null && System.nanoTime() - deadline > 0) {
+            exhaust(SolveResult.Limit.TIME);
+        }
+        if (caller.isInterrupted()) {
+            exhaust(SolveResult.Limit.INTERRUPTED);
+        }
+        if (cancellation != null && cancellation.getAsBoolean()) {
+            exhaust(SolveResult.Limit.CANCELLED);
+        }
+    }
+    
+    /**
+     * Makes every further report throw {@linkplain Exhausted}, so the workers which are still busy stop as soon as possible.
+     * <br>
+     * Used once the run is over - it doesn't count as reaching a limit of its own.
+     */
+    void stop() {
+        if (exhausted == null) {
+            exhausted = SolveResult.Limit.CANCELLED;
+        }
+    }
+    
+    private void exhaust(SolveResult.Limit limit) {
+        exhausted = limit;
+        throw new Exhausted(limit);
+    }
+    
+    /**
+     * Unwinds a run which reached one of its limits. It never leaves the {@linkplain Algorithm}.
+     */
+    static class Exhausted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final SolveResult.Limit limit;
+        
+        Exhausted(SolveResult.Limit limit) {
+            super(limit.toString(), null, false, false);
+            this.limit = limit;
+        }
+    }
+}
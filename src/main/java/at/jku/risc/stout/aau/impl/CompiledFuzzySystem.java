@@ -0,0 +1,550 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.FuzzySystem;
+import at.jku.risc.stout.aau.ProximityRelation;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.BoundedCache;
+import at.jku.risc.stout.aau.util.Data;
+import at.jku.risc.stout.aau.util.Panic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A precomputed view of a fixed set of {@linkplain ProximityRelation ProximityRelations}, arities and λ-cut,
+ * which doesn't depend on any particular problem.
+ * <br><br>
+ * Building one flips and validates all relations, infers the arities and compiles the {@linkplain RelationStore},
+ * which can get expensive for a big relation base.
+ * Instead of repeating this for every problem, a {@linkplain CompiledFuzzySystem} can be built once
+ * and passed to any number of {@linkplain at.jku.risc.stout.aau.Problem Problems}
+ * (see {@linkplain at.jku.risc.stout.aau.Problem#compiledFuzzySystem(CompiledFuzzySystem)}).
+ * Each problem then only checks its own terms against it (see {@linkplain PredefinedFuzzySystem}).
+ * <br><br>
+ * The system is immutable (aside from its internal memory), and safe to share between threads.
+ */
+public final class CompiledFuzzySystem implements FuzzySystem {
+    
+    private static final Logger log = LoggerFactory.getLogger(CompiledFuzzySystem.class);
+    
+    private final float lambda;
+    /**
+     * The system's symbols get dense local indices, so all lookups can go through plain arrays:
+     * <br>
+     * <b>localIds</b> maps {@linkplain SymbolTable} ids to local indices, and <b>symbols</b> maps them back.
+     * <br>
+     * The global ids are never freed, so they keep growing with every symbol the process has seen.
+     * That's why <b>localIds</b> is a hash table sized by the system's own symbols, rather than an array indexed by global id.
+     */
+    private final LocalIds localIds;
+    private final int[] symbols;
+    private final int[] arities;
+    /**
+     * Per local index: whether the arity was explicitly defined,
+     * and some symbol it has a stated relation with (including those below λ), or -1 if there is none.
+     */
+    private final boolean[] definedArity;
+    private final int[] statedProximate;
+    private final RelationStore relations;
+    private final RestrictionType restrictionType, practicalRestrictionType;
+    
+    /**
+     * Compiles the given relations and arities.
+     * <br>
+     * Relations with a proximity below <b>lambda</b> are discarded,
+     * so the system can only be used for problems with a λ-cut of at least <b>lambda</b>.
+     * <br><br>
+     * See {@linkplain at.jku.risc.stout.aau.Problem#proximityRelations(Collection)} and
+     * {@linkplain at.jku.risc.stout.aau.Problem#arities(Map)} for the requirements on the relations and arities.
+     * Neither of the inputs are modified.
+     */
+    public CompiledFuzzySystem(Collection<ProximityRelation> statedRelations, Map<String, Integer> definedArities, float lambda) {
+        if (lambda < 0.0f || lambda > 1.0f) {
+            throw Panic.arg("Lambda must be in range [0,1]");
+        }
+        this.lambda = lambda;
+        
+        // include flipped relations
+        List<ProximityRelation> allProximityRelations = new ArrayList<>(statedRelations.size() * 2);
+        for (ProximityRelation relation : statedRelations) {
+            allProximityRelations.add(relation);
+            allProximityRelations.add(relation.flipped());
+        }
+        enforceValidRelations(allProximityRelations);
+        
+        Map<String, Integer> arityMap = inferArities(definedArities, allProximityRelations);
+        this.symbols = arityMap.keySet().stream().mapToInt(SymbolTable::id).toArray();
+        this.localIds = new LocalIds(symbols);
+        this.arities = new int[symbols.length];
+        this.definedArity = new boolean[symbols.length];
+        this.statedProximate = new int[symbols.length];
+        Arrays.fill(statedProximate, -1);
+        for (int idx = 0; idx < symbols.length; idx++) {
+            arities[idx] = arityMap.get(SymbolTable.name(symbols[idx]));
+            definedArity[idx] = definedArities.containsKey(SymbolTable.name(symbols[idx]));
+        }
+        for (ProximityRelation relation : allProximityRelations) {
+            statedProximate[local(relation.fSymbol)] = relation.gSymbol;
+        }
+        
+        this.restrictionType = inferRestriction(allProximityRelations);
+        removeProximitesBelowLambda(allProximityRelations, lambda);
+        this.practicalRestrictionType = inferRestriction(allProximityRelations);
+        
+        this.relations = buildStore(allProximityRelations);
+    }
+    
+    public CompiledFuzzySystem(Collection<ProximityRelation> statedRelations, float lambda) {
+        this(statedRelations, Collections.emptyMap(), lambda);
+    }
+    
+    /**
+     * View of <b>base</b> at a higher λ-cut (see {@linkplain CompiledFuzzySystem#atLambda(float)}).
+     * <br>
+     * Shares everything which doesn't depend on λ with <b>base</b>, and masks its compiled {@linkplain RelationStore}.
+     */
+    private CompiledFuzzySystem(CompiledFuzzySystem base, float lambda) {
+        this.lambda = lambda;
+        this.localIds = base.localIds;
+        this.symbols = base.symbols;
+        this.arities = base.arities;
+        this.definedArity = base.definedArity;
+        this.statedProximate = base.statedProximate;
+        this.restrictionType = base.restrictionType;
+        this.relations = base.relations.above(lambda);
+        
+        List<ProximityRelation> remainingRelations = new ArrayList<>();
+        for (int f = 0; f < relations.size(); f++) {
+            for (int slot = relations.rowStart(f); slot < relations.rowEnd(f); slot++) {
+                if (relations.column(slot) != f) {
+                    remainingRelations.add(relations.relationAt(slot));
+                }
+            }
+        }
+        this.practicalRestrictionType = inferRestriction(remainingRelations);
+    }
+    
+    // *** public methods ***
+    
+    /**
+     * The λ-cut the system was compiled with, i.e. the lowest λ-cut of any problem it can be used for.
+     */
+    public float getLambda() {
+        return lambda;
+    }
+    
+    private static final int LAMBDA_VIEWS_MAX_ENTRIES = 16;
+    private final BoundedCache<Float, CompiledFuzzySystem> lambdaViews = new BoundedCache<>(LAMBDA_VIEWS_MAX_ENTRIES);
+    
+    /**
+     * The system as it appears to a problem with the given λ-cut.
+     * <br><br>
+     * Relations between the compiled λ-cut and <b>lambda</b> are still part of this system,
+     * but must not be visible to the problem: they would show up as common proximates, compatible symbols and in the practical
+     * {@linkplain RestrictionType}. So for a higher λ-cut, the compiled {@linkplain RelationStore} is masked in a single pass,
+     * without repeating the flipping, validation and arity inference, and the practical restriction type is recomputed.
+     * <br>
+     * The last few views are remembered for the next problem (and are themselves safe to share).
+     */
+    public CompiledFuzzySystem atLambda(float lambda) {
+        if (lambda < this.lambda) {
+            throw Panic.arg("λ [%s] is below the λ-cut the fuzzy system was compiled with [%s]", lambda, this.lambda);
+        }
+        if (lambda == this.lambda) {
+            return this;
+        }
+        CompiledFuzzySystem view = lambdaViews.get(lambda);
+        if (view == null) {
+            view = new CompiledFuzzySystem(this, lambda);
+            lambdaViews.put(lambda, view);
+        }
+        return view;
+    }
+    
+    @Override
+    public RestrictionType restrictionType() {
+        return restrictionType;
+    }
+    
+    @Override
+    public RestrictionType practicalRestrictionType() {
+        return practicalRestrictionType;
+    }
+    
+    /**
+     * @return whether the function/constant is part of the system
+     */
+    public boolean contains(int symbol) {
+        return localIds.get(symbol) >= 0;
+    }
+    
+    /**
+     * Local index of the given symbol.
+     */
+    private int local(int symbol) {
+        int local = localIds.get(symbol);
+        assert local >= 0;
+        return local;
+    }
+    
+    /**
+     * Proximity relation between functions/constants 'f' and 'g'.
+     * <br>
+     * <b>Undefined</b> if either side is ANON.
+     */
+    @Override
+    public ProximityRelation proximityRelation(int f, int g) {
+        return relations.relation(local(f), local(g));
+    }
+    
+    @Override
+    public ProximityRelation proximityRelation(String f, String g) {
+        return proximityRelation(SymbolTable.id(f), SymbolTable.id(g));
+    }
+    
+    /**
+     * Arity of the given function/constant 'f'.
+     * <br>
+     * <b>Undefined</b> for ANON.
+     */
+    @Override
+    public int arity(int f) {
+        return arities[local(f)];
+    }
+    
+    @Override
+    public int arity(String f) {
+        return arity(SymbolTable.id(f));
+    }
+    
+    private static final int PROXIMATES_MEMORY_MAX_ENTRIES = 1 << 16;
+    private final BoundedCache<HeadsKey, int[]> proximatesMemory = new BoundedCache<>(PROXIMATES_MEMORY_MAX_ENTRIES);
+    private final LongAdder proximatesHits = new LongAdder(), proximatesMisses = new LongAdder();
+    
+    /**
+     * Finds all terms which are proximates of all terms in the given set.
+     * <br>
+     * <b>Undefined</b> for sets containing ANON.
+     * <br><br>
+     * The intersection itself is cheap (see {@linkplain RelationStore#commonProximates(int[])}),
+     * but we can often expect calls on the same sets of heads, so the results are also kept in a bounded memory.
+     * Its key is the sorted set of heads, so permutations of the same set share an entry.
+     * The memory is shared by all problems using this system, and is safe to use from multiple threads at once.
+     */
+    @Override
+    public int[] commonProximateSymbols(ArraySet<GroundishTerm> terms) {
+        return commonProximateSymbols(terms, proximatesHits, proximatesMisses);
+    }
+    
+    /**
+     * Same as {@linkplain CompiledFuzzySystem#commonProximateSymbols(ArraySet)},
+     * but counts the memory's hits and misses in the given counters instead of the system's own.
+     */
+    int[] commonProximateSymbols(ArraySet<GroundishTerm> terms, LongAdder hits, LongAdder misses) {
+        assert !terms.isEmpty();
+        
+        int[] heads = new int[terms.size()];
+        int idx = 0;
+        for (GroundishTerm term : terms) {
+            heads[idx++] = local(term.symbol());
+        }
+        Arrays.sort(heads);
+        HeadsKey key = new HeadsKey(heads);
+        
+        int[] memorized = proximatesMemory.get(key);
+        if (memorized != null) {
+            hits.increment();
+            return memorized;
+        }
+        misses.increment();
+        
+        int[] commonProximates = relations.commonProximates(heads);
+        for (int proximate = 0; proximate < commonProximates.length; proximate++) {
+            commonProximates[proximate] = symbols[commonProximates[proximate]];
+        }
+        proximatesMemory.put(key, commonProximates);
+        return commonProximates;
+    }
+    
+    /**
+     * Hits of the common proximates memory, from calls which didn't go through a {@linkplain PredefinedFuzzySystem}
+     */
+    public long proximatesMemoHits() {
+        return proximatesHits.sum();
+    }
+    
+    public long proximatesMemoMisses() {
+        return proximatesMisses.sum();
+    }
+    
+    /**
+     * Whether 'f' and 'g' have at least one common proximate.
+     * <br>
+     * For small alphabets, this is precomputed for all pairs (see {@linkplain RelationStore#compatible(int, int)}).
+     */
+    @Override
+    public boolean compatible(int f, int g) {
+        return f == g || relations.compatible(local(f), local(g));
+    }
+    
+    @Override
+    public ArraySet<String> commonProximates(ArraySet<GroundishTerm> terms) {
+        List<String> commonProximates = new ArrayList<>();
+        for (int symbol : commonProximateSymbols(terms)) {
+            commonProximates.add(SymbolTable.name(symbol));
+        }
+        return ArraySet.of(commonProximates, true);
+    }
+    
+    // *** package-private methods used by PredefinedFuzzySystem ***
+    
+    /**
+     * @return whether the arity of the given symbol was explicitly defined (as opposed to inferred from its relations)
+     */
+    boolean definesArity(int symbol) {
+        return definedArity[local(symbol)];
+    }
+    
+    /**
+     * @return some symbol the given symbol has a stated relation with (even if it's below λ), or -1 if there is none
+     */
+    int statedProximate(int symbol) {
+        return statedProximate[local(symbol)];
+    }
+    
+    /**
+     * @return whether the given symbol has any proximates above λ, aside from itself
+     */
+    boolean hasProximates(int symbol) {
+        int f = local(symbol);
+        return relations.rowEnd(f) - relations.rowStart(f) > 1;
+    }
+    
+    /**
+     * The proximity class of the given symbol, including its identity relation.
+     */
+    List<ProximityRelation> proximityClass(int symbol) {
+        int f = local(symbol);
+        List<ProximityRelation> proximityClass = new ArrayList<>();
+        for (int slot = relations.rowStart(f); slot < relations.rowEnd(f); slot++) {
+            proximityClass.add(relations.relationAt(slot));
+        }
+        return proximityClass;
+    }
+    
+    @Override
+    public String toString() {
+        return Data.str(compactView());
+    }
+    
+    /**
+     * Used for logging.
+     */
+    public List<String> compactView() {
+        List<String> view = new ArrayList<>();
+        Set<Integer> listed = new HashSet<>();
+        for (int f = 0; f < relations.size(); f++) {
+            listed.add(f);
+            List<ProximityRelation> list = new ArrayList<>();
+            for (int slot = relations.rowStart(f); slot < relations.rowEnd(f); slot++) {
+                if (!listed.contains(relations.column(slot))) {
+                    list.add(relations.relationAt(slot));
+                }
+            }
+            if (!list.isEmpty()) {
+                view.add(Data.str(list));
+            }
+        }
+        return view;
+    }
+    
+    /**
+     * Used for logging.
+     */
+    public List<String> fullView() {
+        List<String> view = new ArrayList<>();
+        for (int f = 0; f < relations.size(); f++) {
+            List<ProximityRelation> list = new ArrayList<>();
+            for (int slot = relations.rowStart(f); slot < relations.rowEnd(f); slot++) {
+                list.add(relations.relationAt(slot));
+            }
+            view.add(Data.str(list));
+        }
+        return view;
+    }
+    
+    // *** private methods used during construction ***
+    
+    /**
+     * Enforces that there be no duplicate relations or identity relations.
+     */
+    private void enforceValidRelations(Collection<ProximityRelation> proximityRelations) {
+        for (ProximityRelation relation : proximityRelations) {
+            if (relation.fSymbol == relation.gSymbol) {
+                throw Panic.arg("Identity proximity relation: %s", relation);
+            }
+        }
+        
+        Set<Long> existing = new HashSet<>();
+        for (ProximityRelation relation : proximityRelations) {
+            long key = (long) relation.fSymbol << 32 | relation.gSymbol;
+            if (existing.contains(key)) {
+                throw Panic.arg("Multiple proximity relations defined between '%s' and '%s'", relation.f, relation.g);
+            }
+            existing.add(key);
+        }
+    }
+    
+    /**
+     * Infers function arities from their occurrences in the proximity relations.
+     * <br>
+     * Note: this limits our knowledge of non-relevant positions to those of functions that appear in the relations -
+     * a problem can still use a function with a higher arity (see {@linkplain PredefinedFuzzySystem}).
+     */
+    private Map<String, Integer> inferArities(Map<String, Integer> definedArities, Collection<ProximityRelation> proximityRelations) {
+        Map<String, Integer> arities = new HashMap<>(definedArities);
+        for (ProximityRelation relation : proximityRelations) {
+            if (definedArities.containsKey(relation.f) && definedArities.get(relation.f) < relation.argMapping.size()) {
+                throw Panic.arg("'%s' has a higher arity in its argument relation %s than defined",
+                        relation.f,
+                        relation);
+            }
+            arities.put(relation.f, Math.max(relation.argMapping.size(), arities.getOrDefault(relation.f, 0)));
+        }
+        return arities;
+    }
+    
+    /**
+     * Infers the system's {@linkplain RestrictionType} from the given relations.
+     * <br><br>
+     * We don't actually need to use any of the optimisations mentioned in the paper -
+     * <br>
+     * however, we still get information about the kind of the generated generalization set.
+     */
+    private RestrictionType inferRestriction(Collection<ProximityRelation> relations) {
+        boolean correspondence = Data.all(relations, relation ->
+                relation.argMapping.size() == arity(relation.fSymbol) && Data.none(relation.argMapping, Set::isEmpty)
+        );
+        boolean mapping = Data.all(relations, relation ->
+                Data.none(relation.argMapping, argRel -> argRel.size() > 1)
+        );
+        
+        if (correspondence) {
+            return mapping ? RestrictionType.CORRESPONDENCE_MAPPING : RestrictionType.CORRESPONDENCE;
+        } else {
+            return mapping ? RestrictionType.MAPPING : RestrictionType.UNRESTRICTED;
+        }
+    }
+    
+    /**
+     * <b>Optimisation:</b> removes all relations below the lambda-cut, since they can't contribute to solutions.
+     */
+    private void removeProximitesBelowLambda(Collection<ProximityRelation> proximityRelations, float lambda) {
+        proximityRelations.removeIf(relation -> {
+            if (relation.proximity < lambda) {
+                log.info("Discarding relation {} with proximity < λ [{}]", relation, lambda);
+                return true;
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Creates the {@linkplain RelationStore} of the given proximity relations, which also includes each function's identity relation.
+     * <br><br>
+     * Note that argument mappings don't need to be padded to the arity of 'f',
+     * since {@linkplain ProximityRelation#mappedArgCount(int)} is 0 for positions outside the stated mapping.
+     */
+    private RelationStore buildStore(Collection<ProximityRelation> relations) {
+        List<List<RelationStore.Slot>> classes = new ArrayList<>(symbols.length);
+        // initialize each proximity class with the identity relation
+        for (int idx = 0; idx < symbols.length; idx++) {
+            String f = SymbolTable.name(symbols[idx]);
+            List<Set<Integer>> mapping = Data.list(arities[idx], ArraySet::singleton);
+            List<RelationStore.Slot> proximityClass = new ArrayList<>();
+            proximityClass.add(new RelationStore.Slot(idx, new ProximityRelation(f, f, 1.0f, mapping)));
+            classes.add(proximityClass);
+        }
+        // add all relations that were computed from the stated relations
+        for (ProximityRelation relation : relations) {
+            classes.get(local(relation.fSymbol)).add(new RelationStore.Slot(local(relation.gSymbol), relation));
+        }
+        return RelationStore.of(classes);
+    }
+    
+    /**
+     * Open addressing hash table from {@linkplain SymbolTable} ids to local indices, with linear probing.
+     * <br>
+     * It's filled once on construction and never changes, so it's safe to share (e.g. with the {@linkplain CompiledFuzzySystem#atLambda(float)} views).
+     */
+    static class LocalIds {
+        private final int[] keys, values;
+        private final int mask;
+        
+        /**
+         * Maps each of the (distinct) <b>symbols</b> to its index in the array.
+         */
+        LocalIds(int[] symbols) {
+            // at most half full, so probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(symbols.length, 1) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+            for (int idx = 0; idx < symbols.length; idx++) {
+                int slot = slot(symbols[idx]);
+                while (keys[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = symbols[idx];
+                values[slot] = idx;
+            }
+        }
+        
+        /**
+         * @return the local index of <b>symbol</b>, or -1 if it isn't part of the system
+         */
+        int get(int symbol) {
+            for (int slot = slot(symbol); keys[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == symbol) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+        
+        int capacity() {
+            return keys.length;
+        }
+        
+        private int slot(int symbol) {
+            // ids are dense, so spread them before masking
+            int hash = symbol * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+    }
+    
+    private static class HeadsKey {
+        final int[] heads;
+        final int hash;
+        
+        HeadsKey(int[] heads) {
+            this.heads = heads;
+            this.hash = Arrays.hashCode(heads);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HeadsKey && hash == ((HeadsKey) obj).hash && Arrays.equals(heads, ((HeadsKey) obj).heads);
+        }
+    }
+}
@@ -1,13 +1,15 @@
 package at.jku.risc.stout.aau.impl;
 
+import at.jku.risc.stout.aau.ConfigView;
 import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.term.Term;
 import at.jku.risc.stout.aau.term.VariableTerm;
 import at.jku.risc.stout.aau.util.ANSI;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Data;
+import at.jku.risc.stout.aau.util.PersistentQueue;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.Collection;
 
 /**
  * {@linkplain Config}s are mutable representations of the branching program states, where:
@@ -17,23 +19,28 @@ import java.util.Queue;
  *     <li> {@linkplain Config#S} is the set of fully generalized sub-terms
  * </ul>
  * When branching occurs, a new {@linkplain Config#copy()} is created per branch.
+ * <br>
+ * Since the underlying queues are {@linkplain PersistentQueue persistent}, a copy only costs O(1) -
+ * the branches share the common parts of their queues.
+ * <br><br>
+ * {@linkplain at.jku.risc.stout.aau.SolverListener Listeners} only get to see the {@linkplain ConfigView read-only view}.
  */
-class Config {
-    final Queue<AUT> A, S;
-    final Queue<Substitution> substitutions;
+class Config implements ConfigView {
+    PersistentQueue<AUT> A, S;
+    PersistentQueue<Substitution> substitutions;
     
     float alpha1, alpha2;
     
     int freshVar;
     
     Config(GroundTerm T1, GroundTerm T2) {
-        A = new ArrayDeque<>();
-        S = new ArrayDeque<>();
-        substitutions = new ArrayDeque<>();
+        A = PersistentQueue.empty();
+        S = PersistentQueue.empty();
+        substitutions = PersistentQueue.empty();
         alpha1 = 1.0f;
         alpha2 = 1.0f;
         freshVar = 0;
-        A.add(new AUT(freshVar(), ArraySet.singleton(T1), ArraySet.singleton(T2)));
+        addA(new AUT(freshVar(), ArraySet.singleton(T1), ArraySet.singleton(T2)));
     }
     
     private Config(Config original) {
@@ -44,17 +51,35 @@ class Config {
         return new Config(this);
     }
     
-    private Config(Config original, Queue<AUT> S) {
-        this.A = new ArrayDeque<>(original.A);
-        this.S = new ArrayDeque<>(S);
-        this.substitutions = new ArrayDeque<>(original.substitutions);
+    private Config(Config original, PersistentQueue<AUT> S) {
+        this.A = original.A;
+        this.S = S;
+        this.substitutions = original.substitutions;
         this.alpha1 = original.alpha1;
         this.alpha2 = original.alpha2;
         this.freshVar = original.freshVar;
     }
     
-    Config copyWithNewS(Queue<AUT> S) {
-        return new Config(this, S);
+    Config copyWithNewS(Collection<AUT> S) {
+        return new Config(this, PersistentQueue.of(S));
+    }
+    
+    AUT removeA() {
+        AUT aut = A.peek();
+        A = A.rest();
+        return aut;
+    }
+    
+    void addA(AUT aut) {
+        A = A.with(aut);
+    }
+    
+    void addS(AUT aut) {
+        S = S.with(aut);
+    }
+    
+    void addSubstitution(Substitution substitution) {
+        substitutions = substitutions.with(substitution);
     }
     
     int freshVar() {
@@ -65,9 +90,34 @@ class Config {
         return freshVar + 1;
     }
     
+    @Override
+    public Term generalization() {
+        return Substitution.applyAll(substitutions, VariableTerm.VAR_0);
+    }
+    
+    @Override
+    public float alpha1() {
+        return alpha1;
+    }
+    
+    @Override
+    public float alpha2() {
+        return alpha2;
+    }
+    
+    @Override
+    public int openAUTs() {
+        return A.size();
+    }
+    
+    @Override
+    public int solvedAUTs() {
+        return S.size();
+    }
+    
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder().append(Substitution.applyAll(substitutions, VariableTerm.VAR_0));
+        StringBuilder sb = new StringBuilder().append(generalization());
         if (!A.isEmpty()) {
             sb.append(ANSI.yellow("  A.. ")).append(Data.str(A));
         }
@@ -81,7 +131,8 @@ class Config {
     
     @Override
     public int hashCode() {
-        return A.hashCode();
+        // branches can share their queue instances, so hashing those would make siblings collide
+        return System.identityHashCode(this);
     }
     
     @Override
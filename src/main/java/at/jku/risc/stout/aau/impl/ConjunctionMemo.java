@@ -0,0 +1,96 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.BoundedCache;
+import at.jku.risc.stout.aau.util.Pair;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Memory of {@linkplain Algorithm#doConjoin(ArraySet, int, boolean) special conjunction} outcomes,
+ * shared by all {@linkplain Config Configs} of one {@linkplain Algorithm} run.
+ * <br><br>
+ * <b>EXPAND</b> conjoins the term sets of every AUT of every linear config, and <b>MERGE</b> conjoins every pair of them,
+ * so the same term sets come up over and over again.
+ * <br>
+ * The conjunction of a term set is ground, so the only part of the outcome which depends on the caller is the fresh variable
+ * it continues with. The memory stores how many variables the conjunction used up, and on reuse returns the stored terms as they are,
+ * advancing the caller's fresh variable by that many.
+ * <br><br>
+ * The memory is safe to share between the workers of a {@linkplain at.jku.risc.stout.aau.Problem#parallelism(int) parallel} run.
+ * <br><br>
+ * Consistency checks also come from <b>DECOMPOSE</b> in the main loop, so (like the {@linkplain DecompositionMemo})
+ * each table only keeps a bounded number of outcomes, evicting the least recently used ones,
+ * so it doesn't undo the bounded memory of a {@linkplain at.jku.risc.stout.aau.Problem.SearchStrategy#DEPTH_FIRST depth-first} run.
+ */
+class ConjunctionMemo {
+    private static final int MAX_ENTRIES = 1 << 14;
+    
+    private final BoundedCache<ArraySet<GroundishTerm>, Conjunction> conjunctions = new BoundedCache<>(MAX_ENTRIES);
+    private final BoundedCache<ArraySet<GroundishTerm>, Boolean> consistency = new BoundedCache<>(MAX_ENTRIES);
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    
+    /**
+     * Looks up the conjunction of <b>terms</b>, and computes + memorizes it on a miss.
+     *
+     * @param conjunction computes the conjunction, starting from the given fresh variable
+     */
+    Pair<ArraySet<GroundishTerm>, Integer> conjoin(ArraySet<GroundishTerm> terms, int freshVar,
+                                                   IntFunction<Pair<ArraySet<GroundishTerm>, Integer>> conjunction) {
+        Conjunction memorized = conjunctions.get(terms);
+        if (memorized != null) {
+            hits.increment();
+            return Pair.of(memorized.terms, freshVar + memorized.usedVars);
+        }
+        misses.increment();
+        Pair<ArraySet<GroundishTerm>, Integer> result = conjunction.apply(freshVar);
+        conjunctions.put(terms, new Conjunction(result.left, result.right - freshVar));
+        return result;
+    }
+    
+    /**
+     * Looks up whether <b>terms</b> are consistent, and computes + memorizes it on a miss.
+     */
+    boolean consistent(ArraySet<GroundishTerm> terms, Supplier<Boolean> consistencyCheck) {
+        Boolean memorized = consistency.get(terms);
+        if (memorized != null) {
+            hits.increment();
+            return memorized;
+        }
+        misses.increment();
+        boolean consistent = consistencyCheck.get();
+        consistency.put(terms, consistent);
+        return consistent;
+    }
+    
+    long hits() {
+        return hits.sum();
+    }
+    
+    long misses() {
+        return misses.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s hits, %s misses (%s conjunctions, %s consistency checks)",
+                hits(), misses(), conjunctions.size(), consistency.size());
+    }
+    
+    /**
+     * A conjunction in variable-independent form: the (ground) resulting terms,
+     * and how far the conjunction advanced the fresh variable.
+     */
+    private static class Conjunction {
+        final ArraySet<GroundishTerm> terms;
+        final int usedVars;
+        
+        Conjunction(ArraySet<GroundishTerm> terms, int usedVars) {
+            this.terms = terms;
+            this.usedVars = usedVars;
+        }
+    }
+}
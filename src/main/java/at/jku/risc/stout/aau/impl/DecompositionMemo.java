@@ -0,0 +1,151 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.BoundedCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Memory of <b>DECOMPOSE</b> outcomes, shared by all {@linkplain Config Configs} of one {@linkplain Algorithm} run.
+ * <br><br>
+ * Different branches of the main loop often arrive at the same {@linkplain AUT}, i.e. the same <b>T1</b> and <b>T2</b>
+ * with the same α1 and α2 - just with a different variable name.
+ * Since the terms of an AUT are ground (aside from ANON), the outcome doesn't depend on the variable,
+ * so the key is canonical up to variable renaming.
+ * <br><br>
+ * The memory is safe to share between the workers of a {@linkplain at.jku.risc.stout.aau.Problem#parallelism(int) parallel} run.
+ * <br><br>
+ * It only keeps a bounded number of outcomes (evicting the least recently used ones),
+ * so it doesn't undo the bounded memory of a {@linkplain at.jku.risc.stout.aau.Problem.SearchStrategy#DEPTH_FIRST depth-first} run.
+ */
+class DecompositionMemo {
+    private static final int MAX_ENTRIES = 1 << 14;
+    
+    private final BoundedCache<Key, Outcome> memory;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    
+    DecompositionMemo() {
+        this(new BoundedCache<>(MAX_ENTRIES));
+    }
+    
+    private DecompositionMemo(BoundedCache<Key, Outcome> memory) {
+        this.memory = memory;
+    }
+    
+    /**
+     * A memory which never remembers anything, so every lookup is a miss.
+     * <br>
+     * Used as a reference in tests.
+     */
+    static DecompositionMemo disabled() {
+        return new DecompositionMemo(null);
+    }
+    
+    /**
+     * Looks up the outcome of decomposing <b>aut</b> at the given alphas, and computes + memorizes it on a miss.
+     */
+    Outcome memorized(AUT aut, float alpha1, float alpha2, Supplier<Outcome> decomposition) {
+        if (memory == null) {
+            misses.increment();
+            return decomposition.get();
+        }
+        Key key = new Key(aut.T1, aut.T2, alpha1, alpha2);
+        Outcome outcome = memory.get(key);
+        if (outcome != null) {
+            hits.increment();
+            return outcome;
+        }
+        misses.increment();
+        outcome = decomposition.get();
+        memory.put(key, outcome);
+        return outcome;
+    }
+    
+    long hits() {
+        return hits.sum();
+    }
+    
+    long misses() {
+        return misses.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s hits, %s misses (%s entries)", hits(), misses(), memory == null ? 0 : memory.size());
+    }
+    
+    /**
+     * Either the special case of a {@linkplain at.jku.risc.stout.aau.term.MappedVariableTerm MappedVariableTerm}
+     * as the only common proximate, or a (possibly empty) list of {@linkplain Decomposition Decompositions}.
+     */
+    static class Outcome {
+        final GroundishTerm mappedVariable;
+        final List<Decomposition> decompositions;
+        
+        private Outcome(GroundishTerm mappedVariable, List<Decomposition> decompositions) {
+            this.mappedVariable = mappedVariable;
+            this.decompositions = decompositions;
+        }
+        
+        static Outcome mappedVariable(GroundishTerm mappedVariable) {
+            return new Outcome(mappedVariable, Collections.emptyList());
+        }
+        
+        static Outcome decompositions(List<Decomposition> decompositions) {
+            return new Outcome(null, Collections.unmodifiableList(decompositions));
+        }
+    }
+    
+    /**
+     * The argument mappings <b>Q1</b>, <b>Q2</b> of a common proximate <b>h</b>, together with the resulting alphas.
+     */
+    static class Decomposition {
+        final int h;
+        final List<ArraySet<GroundishTerm>> Q1, Q2;
+        final float alpha1, alpha2;
+        
+        Decomposition(int h, List<ArraySet<GroundishTerm>> Q1, List<ArraySet<GroundishTerm>> Q2, float alpha1, float alpha2) {
+            this.h = h;
+            this.Q1 = Q1;
+            this.Q2 = Q2;
+            this.alpha1 = alpha1;
+            this.alpha2 = alpha2;
+        }
+    }
+    
+    private static class Key {
+        final ArraySet<GroundishTerm> T1, T2;
+        final float alpha1, alpha2;
+        final int hash;
+        
+        Key(ArraySet<GroundishTerm> T1, ArraySet<GroundishTerm> T2, float alpha1, float alpha2) {
+            this.T1 = T1;
+            this.T2 = T2;
+            this.alpha1 = alpha1;
+            this.alpha2 = alpha2;
+            this.hash = ((T1.hashCode() * 31 + T2.hashCode()) * 31 + Float.hashCode(alpha1)) * 31 + Float.hashCode(alpha2);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Float.compare(alpha1, other.alpha1) == 0 && Float.compare(alpha2, other.alpha2) == 0
+                    && T1.equals(other.T1) && T2.equals(other.T2);
+        }
+    }
+}
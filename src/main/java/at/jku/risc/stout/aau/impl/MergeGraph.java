@@ -0,0 +1,96 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.FuzzySystem;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static at.jku.risc.stout.aau.term.Anon.ANON;
+
+/**
+ * Compatibility graph over the AUTs of an expanded {@linkplain Config}, used by <b>MERGE</b>.
+ * <br><br>
+ * Two AUTs are adjacent if both their merged <b>T1</b> and merged <b>T2</b> are {@linkplain Algorithm#consistent(ArraySet) consistent},
+ * i.e. exactly if merging them succeeds. Most pairs usually aren't, so the merge can skip most of its attempts without conjoining anything.
+ * <br>
+ * Once a collector has merged with another AUT, its terms are the result of a conjunction, and adjacency no longer applies.
+ * For those, {@linkplain MergeGraph#mayMerge(AUT, int)} still rules out candidates with incompatible heads.
+ * <br><br>
+ * Building the graph happens in two stages:
+ * <ul>
+ *     <li> each AUT is indexed by the distinct heads of its <b>T1</b> and <b>T2</b>,
+ *     and pairs with any two {@linkplain FuzzySystem#compatible(int, int) incompatible} heads on the same side are ruled out
+ *     <li> the remaining pairs are checked for consistency, row by row in parallel if requested
+ * </ul>
+ */
+class MergeGraph {
+    private final FuzzySystem fuzzySystem;
+    private final int size, words;
+    private final int[][] heads1, heads2;
+    private final long[] adjacent;
+    
+    MergeGraph(List<AUT> auts, FuzzySystem fuzzySystem, Predicate<ArraySet<GroundishTerm>> consistent, boolean parallel) {
+        this.fuzzySystem = fuzzySystem;
+        size = auts.size();
+        words = (size + 63) >>> 6;
+        adjacent = new long[size * words];
+        
+        heads1 = new int[size][];
+        heads2 = new int[size][];
+        for (int idx = 0; idx < size; idx++) {
+            heads1[idx] = heads(auts.get(idx).T1);
+            heads2[idx] = heads(auts.get(idx).T2);
+        }
+        
+        IntStream rows = IntStream.range(0, size);
+        (parallel ? rows.parallel() : rows).forEach(a -> {
+            AUT autA = auts.get(a);
+            for (int b = a + 1; b < size; b++) {
+                if (!compatible(heads1[a], heads1[b]) || !compatible(heads2[a], heads2[b])) {
+                    continue;
+                }
+                AUT autB = auts.get(b);
+                if (consistent.test(ArraySet.merged(autA.T1, autB.T1)) && consistent.test(ArraySet.merged(autA.T2, autB.T2))) {
+                    // only row 'a' is written by this task, the symmetric bit is set afterwards
+                    adjacent[a * words + (b >>> 6)] |= 1L << b;
+                }
+            }
+        });
+        for (int a = 0; a < size; a++) {
+            for (int b = a + 1; b < size; b++) {
+                if (adjacent(a, b)) {
+                    adjacent[b * words + (a >>> 6)] |= 1L << a;
+                }
+            }
+        }
+    }
+    
+    boolean adjacent(int a, int b) {
+        return (adjacent[a * words + (b >>> 6)] & 1L << b) != 0;
+    }
+    
+    /**
+     * Necessary condition for merging <b>candidate</b> into <b>collector</b>: all heads on the same side are compatible.
+     */
+    boolean mayMerge(AUT collector, int candidate) {
+        return compatible(heads(collector.T1), heads1[candidate]) && compatible(heads(collector.T2), heads2[candidate]);
+    }
+    
+    private static int[] heads(ArraySet<GroundishTerm> terms) {
+        return terms.stream().filter(term -> !ANON.equals(term)).mapToInt(GroundishTerm::symbol).distinct().toArray();
+    }
+    
+    private boolean compatible(int[] headsA, int[] headsB) {
+        for (int a : headsA) {
+            for (int b : headsB) {
+                if (a != b && !fuzzySystem.compatible(a, b)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -3,7 +3,7 @@ package at.jku.risc.stout.aau.impl;
 import at.jku.risc.stout.aau.Problem;
 import at.jku.risc.stout.aau.ProximityRelation;
 import at.jku.risc.stout.aau.term.GroundTerm;
-import at.jku.risc.stout.aau.term.MappedVariableTerm;
+import at.jku.risc.stout.aau.term.TermFactory;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Pair;
 import at.jku.risc.stout.aau.util.Panic;
@@ -71,7 +71,7 @@ public class Parser {
                 subTerms.push(new GroundTermBuilder(head));
                 continue;
             }
-            subTerms.peek().arguments.add(new MappedVariableTerm(token));
+            subTerms.peek().arguments.add(TermFactory.mappedVariable(token));
         }
         if (subTerms.size() > 1) {
             throw Panic.parse("Unclosed parentheses in term: %s", termString);
@@ -191,7 +191,7 @@ public class Parser {
         }
         
         public GroundTerm build() {
-            GroundTerm t = new GroundTerm(head, arguments);
+            GroundTerm t = TermFactory.groundTerm(head, arguments);
             arguments = null;
             return t;
         }
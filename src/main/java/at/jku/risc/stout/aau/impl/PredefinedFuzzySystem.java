@@ -3,48 +3,87 @@ package at.jku.risc.stout.aau.impl;
 import at.jku.risc.stout.aau.FuzzySystem;
 import at.jku.risc.stout.aau.ProximityRelation;
 import at.jku.risc.stout.aau.term.GroundTerm;
-import at.jku.risc.stout.aau.term.MappedVariableTerm;
 import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.MappedVariableTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Data;
-import at.jku.risc.stout.aau.util.Pair;
 import at.jku.risc.stout.aau.util.Panic;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * The view of a {@linkplain CompiledFuzzySystem} from a single problem.
+ * <br><br>
+ * The problem terms are checked against the compiled system, and can add to it:
+ * <ul>
+ *     <li> symbols which only appear in the problem terms, which are only close to themselves
+ *     <li> symbols which appear with a higher arity than the relations imply (see the README section on arities),
+ *     whose identity relation needs to cover the additional arguments
+ * </ul>
+ * Everything else is looked up in the compiled system directly, so constructing this view only takes a pass over the problem terms.
+ */
 class PredefinedFuzzySystem implements FuzzySystem {
     
-    private static final Logger log = LoggerFactory.getLogger(PredefinedFuzzySystem.class);
-    
-    private final Map<String, Map<String, ProximityRelation>> proximityMap;
-    private final Map<String, Integer> arities;
+    private final CompiledFuzzySystem compiled;
+    /**
+     * The symbols added by the problem, in ascending order, with their respective identity relation.
+     */
+    private final int[] overlaySymbols;
+    private final ProximityRelation[] overlayIdentities;
+    private final List<Integer> problemSymbols;
     private final RestrictionType restrictionType, practicalRestrictionType;
+    /**
+     * This problem's share of the compiled system's common proximates memory
+     */
+    private final LongAdder proximatesHits = new LongAdder(), proximatesMisses = new LongAdder();
     
     /**
-     * Constructs a precomputed view of the problem described by the problem terms, relations and λ-cut.
+     * Constructs a precomputed view of the problem described by the problem terms and compiled system.
      */
-    public PredefinedFuzzySystem(
-            GroundTerm lhs, GroundTerm rhs, Map<String, Integer> definedArities, Collection<ProximityRelation> statedRelations, float lambda
-    ) {
-        // include flipped relations
-        List<ProximityRelation> allProximityRelations = new ArrayList<>(statedRelations.size() * 2);
-        for (ProximityRelation relation : statedRelations) {
-            allProximityRelations.add(relation);
-            allProximityRelations.add(relation.flipped());
-        }
-        enforceValidRelations(allProximityRelations);
+    public PredefinedFuzzySystem(GroundTerm lhs, GroundTerm rhs, CompiledFuzzySystem compiled) {
+        this.compiled = compiled;
         
-        this.arities = Collections.unmodifiableMap(inferArities(lhs, rhs, definedArities, allProximityRelations));
+        Map<Integer, Integer> termArities = new LinkedHashMap<>();
+        Set<Integer> mappedVariables = new HashSet<>();
+        inferAritiesFromTerm(lhs, termArities, mappedVariables);
+        inferAritiesFromTerm(rhs, termArities, mappedVariables);
+        this.problemSymbols = Collections.unmodifiableList(new ArrayList<>(termArities.keySet()));
         
-        this.restrictionType = inferRestriction(allProximityRelations);
-        removeProximitesBelowLambda(allProximityRelations, lambda);
-        this.practicalRestrictionType = inferRestriction(allProximityRelations);
+        boolean correspondence = compiled.restrictionType().correspondence;
+        boolean practicalCorrespondence = compiled.practicalRestrictionType().correspondence;
+        SortedMap<Integer, ProximityRelation> overlay = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> entry : termArities.entrySet()) {
+            int symbol = entry.getKey();
+            int arity = entry.getValue();
+            String name = SymbolTable.name(symbol);
+            if (!compiled.contains(symbol)) {
+                overlay.put(symbol, identity(name, arity));
+                continue;
+            }
+            if (mappedVariables.contains(symbol) && compiled.statedProximate(symbol) >= 0) {
+                throw Panic.arg("Variable '%s' can't be close to '%s'", name, SymbolTable.name(compiled.statedProximate(symbol)));
+            }
+            if (arity == compiled.arity(symbol)) {
+                continue;
+            }
+            if (compiled.definesArity(symbol)) {
+                throw Panic.arg("'%s' is defined or appears in the posed problem with multiple arities", name);
+            }
+            if (arity < compiled.arity(symbol)) {
+                throw Panic.arg("'%s' has a higher arity in its argument relations than it appears with in the posed problem", name);
+            }
+            // the relations don't cover the additional arguments
+            overlay.put(symbol, identity(name, arity));
+            correspondence &= compiled.statedProximate(symbol) < 0;
+            practicalCorrespondence &= !compiled.hasProximates(symbol);
+        }
+        this.overlaySymbols = overlay.keySet().stream().mapToInt(Integer::intValue).toArray();
+        this.overlayIdentities = overlay.values().toArray(new ProximityRelation[0]);
         
-        this.proximityMap = Collections.unmodifiableMap(buildMap(allProximityRelations));
+        this.restrictionType = restriction(correspondence, compiled.restrictionType().mapping);
+        this.practicalRestrictionType = restriction(practicalCorrespondence, compiled.practicalRestrictionType().mapping);
     }
     
     // *** public methods ***
@@ -60,13 +99,13 @@ class PredefinedFuzzySystem implements FuzzySystem {
     }
     
     /**
-     * Map of all proximates of function/constant 'f' to their respective proximity relation.
-     * <br>
-     * <b>Undefined</b> for ANON.
+     * Index of the given symbol in the overlay, or a negative number if it isn't part of it.
      */
-    private Map<String, ProximityRelation> proximityClass(String f) {
-        assert proximityMap.containsKey(f);
-        return proximityMap.get(f);
+    private int overlayIndex(int symbol) {
+        if (overlaySymbols.length == 0) {
+            return -1;
+        }
+        return Arrays.binarySearch(overlaySymbols, symbol);
     }
     
     /**
@@ -74,10 +113,21 @@ class PredefinedFuzzySystem implements FuzzySystem {
      * <br>
      * <b>Undefined</b> if either side is ANON.
      */
+    @Override
+    public ProximityRelation proximityRelation(int f, int g) {
+        int idx = overlayIndex(f);
+        if (idx >= 0 && f == g) {
+            return overlayIdentities[idx];
+        }
+        if (!compiled.contains(f) || !compiled.contains(g)) {
+            return null;
+        }
+        return compiled.proximityRelation(f, g);
+    }
+    
     @Override
     public ProximityRelation proximityRelation(String f, String g) {
-        assert proximityMap.containsKey(g);
-        return proximityClass(f).get(g);
+        return proximityRelation(SymbolTable.id(f), SymbolTable.id(g));
     }
     
     /**
@@ -86,45 +136,66 @@ class PredefinedFuzzySystem implements FuzzySystem {
      * <b>Undefined</b> for ANON.
      */
     @Override
-    public int arity(String f) {
-        assert arities.containsKey(f);
-        return arities.get(f);
+    public int arity(int f) {
+        int idx = overlayIndex(f);
+        if (idx >= 0) {
+            return overlayIdentities[idx].argMapping.size();
+        }
+        return compiled.arity(f);
     }
     
-    private static final int PROXIMATES_MEMORY_MAX_SIZE = 3;
-    private final Map<ArraySet<String>, ArraySet<String>> proximatesMemory = new HashMap<>();
+    @Override
+    public int arity(String f) {
+        return arity(SymbolTable.id(f));
+    }
     
     /**
      * Finds all terms which are proximates of all terms in the given set.
      * <br>
      * <b>Undefined</b> for sets containing ANON.
      * <br><br>
-     * Uses some rudimentary memoization, since we can often expect calls on the same sets of terms.
+     * Symbols which only appear in the problem are only close to themselves,
+     * everything else is answered (and memorized) by the {@linkplain CompiledFuzzySystem}.
      */
     @Override
-    public ArraySet<String> commonProximates(ArraySet<GroundishTerm> terms) {
+    public int[] commonProximateSymbols(ArraySet<GroundishTerm> terms) {
         assert !terms.isEmpty();
         
-        ArraySet<String> heads = terms.map(GroundishTerm::head);
-        if (heads.size() <= PROXIMATES_MEMORY_MAX_SIZE && proximatesMemory.containsKey(heads)) {
-            return proximatesMemory.get(heads);
-        }
-        
-        Set<String> commonProximates = null;
-        for (String head : heads) {
-            Stream<String> proximates = proximityClass(head).values().stream().map(relation -> relation.g);
-            if (commonProximates != null) {
-                commonProximates.retainAll(proximates.collect(Collectors.toList()));
-            } else { // first element
-                commonProximates = proximates.collect(Collectors.toSet());
+        if (overlaySymbols.length != 0) {
+            for (GroundishTerm term : terms) {
+                if (!compiled.contains(term.symbol())) {
+                    int symbol = term.symbol();
+                    return Data.all(terms, other -> other.symbol() == symbol) ? new int[]{symbol} : new int[0];
+                }
             }
         }
-        
-        ArraySet<String> result = ArraySet.of(commonProximates, true);
-        if (heads.size() <= PROXIMATES_MEMORY_MAX_SIZE) {
-            proximatesMemory.put(heads, result);
+        return compiled.commonProximateSymbols(terms, proximatesHits, proximatesMisses);
+    }
+    
+    long proximatesMemoHits() {
+        return proximatesHits.sum();
+    }
+    
+    long proximatesMemoMisses() {
+        return proximatesMisses.sum();
+    }
+    
+    /**
+     * Whether 'f' and 'g' have at least one common proximate.
+     * <br>
+     * Symbols which only appear in the problem are only close to themselves.
+     */
+    @Override
+    public boolean compatible(int f, int g) {
+        if (f == g) {
+            return true;
         }
-        return result;
+        return compiled.contains(f) && compiled.contains(g) && compiled.compatible(f, g);
+    }
+    
+    @Override
+    public ArraySet<String> commonProximates(ArraySet<GroundishTerm> terms) {
+        return ArraySet.of(SymbolTable.names(commonProximateSymbols(terms)), true);
     }
     
     @Override
@@ -133,21 +204,19 @@ class PredefinedFuzzySystem implements FuzzySystem {
     }
     
     /**
-     * Used for logging.
+     * Used for logging. Only lists the proximity classes of symbols which appear in the problem.
      */
     public List<String> compactView() {
         List<String> view = new ArrayList<>();
-        Set<String> listed = new HashSet<>();
-        for (String k : proximityMap.keySet()) {
-            if (listed.contains(k)) {
-                continue;
+        Set<Integer> listed = new HashSet<>();
+        for (int f : problemSymbols) {
+            listed.add(f);
+            List<ProximityRelation> list = new ArrayList<>();
+            for (ProximityRelation relation : proximityClass(f)) {
+                if (!listed.contains(relation.gSymbol)) {
+                    list.add(relation);
+                }
             }
-            listed.add(k);
-            List<ProximityRelation> list = proximityMap.get(k)
-                    .values()
-                    .stream()
-                    .filter(relation -> !listed.contains(relation.g))
-                    .collect(Collectors.toList());
             if (!list.isEmpty()) {
                 view.add(Data.str(list));
             }
@@ -156,77 +225,45 @@ class PredefinedFuzzySystem implements FuzzySystem {
     }
     
     /**
-     * Used for logging.
+     * Used for logging. Only lists the proximity classes of symbols which appear in the problem.
      */
     public List<String> fullView() {
-        return proximityMap.values().stream().map(map -> Data.str(map.values())).collect(Collectors.toList());
+        List<String> view = new ArrayList<>();
+        for (int f : problemSymbols) {
+            view.add(Data.str(proximityClass(f)));
+        }
+        return view;
     }
     
-    // *** private methods used during construction ***
-    
-    /**
-     * Enforces that there be no duplicate relations or identity relations.
-     */
-    private void enforceValidRelations(Collection<ProximityRelation> proximityRelations) {
-        for (ProximityRelation relation : proximityRelations) {
-            if (relation.f == relation.g) {
-                throw Panic.arg("Identity proximity relation: %s", relation);
-            }
+    private List<ProximityRelation> proximityClass(int f) {
+        int idx = overlayIndex(f);
+        if (!compiled.contains(f)) {
+            return Collections.singletonList(overlayIdentities[idx]);
         }
-        
-        Set<Pair<String, String>> existing = new HashSet<>();
-        for (ProximityRelation relation : proximityRelations) {
-            Pair<String, String> key = Pair.of(relation.f, relation.g);
-            if (existing.contains(key)) {
-                throw Panic.arg("Multiple proximity relations defined between '%s' and '%s'", relation.f, relation.g);
-            }
-            existing.add(key);
+        List<ProximityRelation> proximityClass = compiled.proximityClass(f);
+        if (idx >= 0) {
+            proximityClass.replaceAll(relation -> relation.gSymbol == f ? overlayIdentities[idx] : relation);
         }
+        return proximityClass;
     }
     
-    /**
-     * Infers function arities from their occurrences in the problem terms and proximity relations.
-     * <br>
-     * Note: this limits our knowledge of non-relevant positions to those of functions that appear in the problem.
-     */
-    private Map<String, Integer> inferArities(
-            GroundTerm lhs, GroundTerm rhs, Map<String, Integer> definedArities, Collection<ProximityRelation> proximityRelations
-    ) {
-        Set<String> mappedVariables = new HashSet<>();
-        
-        inferAritiesFromTerm(lhs, definedArities, mappedVariables);
-        inferAritiesFromTerm(rhs, definedArities, mappedVariables);
-        
-        Map<String, Integer> arities = new HashMap<>(definedArities);
-        for (ProximityRelation relation : proximityRelations) {
-            if (mappedVariables.contains(relation.f)) {
-                throw Panic.arg("Variable '%s' can't be close to '%s'", relation.f, relation.g);
-            }
-            if (definedArities.containsKey(relation.f) && definedArities.get(relation.f) < relation.argMapping.size()) {
-                throw Panic.arg("'%s' has a higher arity in its argument relation %s than defined",
-                        relation.f,
-                        relation);
-            }
-            arities.put(relation.f, Math.max(relation.argMapping.size(), arities.getOrDefault(relation.f, 0)));
-        }
-        return arities;
-    }
+    // *** private methods used during construction ***
     
     /**
      * Recursively infers arities from a term and all its sub-terms.
      */
-    private void inferAritiesFromTerm(GroundTerm term, Map<String, Integer> arities, Set<String> mappedVariables) {
-        if (arities.containsKey(term.head())) {
-            if (arities.get(term.head()) != term.arguments().size()) {
+    private void inferAritiesFromTerm(GroundTerm term, Map<Integer, Integer> arities, Set<Integer> mappedVariables) {
+        if (arities.containsKey(term.symbol())) {
+            if (arities.get(term.symbol()) != term.arguments().size()) {
                 throw Panic.arg("'%s' is defined or appears in the posed problem with multiple arities", term.head());
             }
-            if (mappedVariables.contains(term.head()) != term instanceof MappedVariableTerm) {
+            if (mappedVariables.contains(term.symbol()) != term instanceof MappedVariableTerm) {
                 throw Panic.arg("%s appears as both a variable and a function/const symbol", term.head());
             }
         } else { // first occurrence
-            arities.put(term.head(), term.arguments().size());
+            arities.put(term.symbol(), term.arguments().size());
             if (term instanceof MappedVariableTerm) {
-                mappedVariables.add(term.head());
+                mappedVariables.add(term.symbol());
             }
         }
         for (GroundTerm arg : term.arguments()) {
@@ -234,62 +271,15 @@ class PredefinedFuzzySystem implements FuzzySystem {
         }
     }
     
-    /**
-     * Infers the problem's {@linkplain RestrictionType} from the given relations.
-     * <br><br>
-     * We don't actually need to use any of the optimisations mentioned in the paper -
-     * <br>
-     * however, we still get information about the kind of the generated generalization set.
-     */
-    private RestrictionType inferRestriction(Collection<ProximityRelation> relations) {
-        boolean correspondence = Data.all(relations, relation ->
-                relation.argMapping.size() == arity(relation.f) && Data.none(relation.argMapping, Set::isEmpty)
-        );
-        boolean mapping = Data.all(relations, relation ->
-                Data.none(relation.argMapping, argRel -> argRel.size() > 1)
-        );
-
+    private static ProximityRelation identity(String f, int arity) {
+        return new ProximityRelation(f, f, 1.0f, Data.list(arity, ArraySet::singleton));
+    }
+    
+    private static RestrictionType restriction(boolean correspondence, boolean mapping) {
         if (correspondence) {
             return mapping ? RestrictionType.CORRESPONDENCE_MAPPING : RestrictionType.CORRESPONDENCE;
         } else {
             return mapping ? RestrictionType.MAPPING : RestrictionType.UNRESTRICTED;
         }
     }
-    
-    /**
-     * <b>Optimisation:</b> removes all relations below the lambda-cut, since they can't contribute to solutions.
-     */
-    private void removeProximitesBelowLambda(Collection<ProximityRelation> proximityRelations, float lambda) {
-        proximityRelations.removeIf(relation -> {
-            if (relation.proximity < lambda) {
-                log.info("Discarding relation {} with proximity < λ [{}]", relation, lambda);
-                return true;
-            }
-            return false;
-        });
-    }
-    
-    /**
-     * Creates map representation of the given proximity relations.
-     * <br><br>
-     * From it, we can retrieve the {@linkplain PredefinedFuzzySystem#proximityClass} of 'f' with <b>proximityRelations.get(f)</b>,
-     * <br>
-     * and the {@linkplain PredefinedFuzzySystem#proximityRelation(String, String)} of 'f' and 'g' with <b>proximityRelations.get(f).get(g)</b>.
-     */
-    private Map<String, Map<String, ProximityRelation>> buildMap(Collection<ProximityRelation> relations) {
-        Map<String, Map<String, ProximityRelation>> map = new HashMap<>();
-        // initialize each proximity class with the identity relation
-        for (String f : arities.keySet()) {
-            List<Set<Integer>> mapping = Data.list(arities.get(f), ArraySet::singleton);
-            Map<String, ProximityRelation> proximityClass = new HashMap<>();
-            proximityClass.put(f, new ProximityRelation(f, f, 1.0f, mapping));
-            map.put(f, proximityClass);
-        }
-        // add all relations that were computed from the stated relations
-        for (ProximityRelation relation : relations) {
-            Data.pad(relation.argMapping, arity(relation.f), Collections::emptySet);
-            map.get(relation.f).put(relation.g, relation);
-        }
-        return map;
-    }
 }
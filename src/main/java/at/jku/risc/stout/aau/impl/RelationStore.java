@@ -0,0 +1,269 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.ProximityRelation;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiled lookup structure for the proximity relations of a {@linkplain PredefinedFuzzySystem}, over its local symbol indices.
+ * <br><br>
+ * The relations are stored in a CSR (compressed sparse row) layout:
+ * the proximity class of <b>f</b> is the slice <b>rowOffsets[f]</b> ... <b>rowOffsets[f+1] - 1</b>
+ * of <b>columns</b> (the proximates' local indices, in ascending order) and <b>relations</b>.
+ * Looking up the relation of 'f' and 'g' is then a binary search within the row.
+ * <br><br>
+ * For small alphabets, we additionally keep a dense <b>n*n</b> matrix of slots into <b>relations</b>,
+ * which makes the lookup a single array access.
+ * <br><br>
+ * For {@linkplain RelationStore#commonProximates(int[])}, each proximity class is also kept as a bitset over the local indices
+ * (<b>words</b> longs per row), so intersecting them is a word-wise AND.
+ * For large alphabets, where <b>n*n</b> bits would take too much memory, we intersect the sorted CSR rows instead.
+ * <br><br>
+ * Similarly, {@linkplain RelationStore#compatible(int, int)} is a single bit lookup for small alphabets,
+ * where we precompute which pairs of symbols have any common proximate.
+ */
+final class RelationStore {
+    static final int DENSE_MAX_SYMBOLS = 512;
+    static final int BITSET_MAX_SYMBOLS = 8192;
+    
+    private final int size, denseMaxSymbols, bitsetMaxSymbols;
+    private final int[] rowOffsets, columns;
+    private final ProximityRelation[] relations;
+    private final int[] denseSlots;
+    private final int words;
+    private final long[] proximateBits;
+    private final long[] compatibleBits;
+    
+    /**
+     * @param classes  the proximity class of each local index, as pairs of (local index of 'g', relation)
+     */
+    static RelationStore of(List<List<Slot>> classes) {
+        return of(classes, DENSE_MAX_SYMBOLS, BITSET_MAX_SYMBOLS);
+    }
+    
+    /**
+     * Same as {@linkplain RelationStore#of(List)}, but with other limits on the alphabet size for the dense matrix and the bitsets.
+     * <br>
+     * Used in tests, to compare the different lookup paths on the same relations.
+     */
+    static RelationStore of(List<List<Slot>> classes, int denseMaxSymbols, int bitsetMaxSymbols) {
+        int size = classes.size();
+        int[] rowOffsets = new int[size + 1];
+        for (int f = 0; f < size; f++) {
+            rowOffsets[f + 1] = rowOffsets[f] + classes.get(f).size();
+        }
+        int[] columns = new int[rowOffsets[size]];
+        ProximityRelation[] relations = new ProximityRelation[rowOffsets[size]];
+        for (int f = 0; f < size; f++) {
+            Slot[] row = classes.get(f).toArray(new Slot[0]);
+            Arrays.sort(row, Comparator.comparingInt(slot -> slot.g));
+            for (int idx = 0; idx < row.length; idx++) {
+                columns[rowOffsets[f] + idx] = row[idx].g;
+                relations[rowOffsets[f] + idx] = row[idx].relation;
+            }
+        }
+        return new RelationStore(rowOffsets, columns, relations, denseMaxSymbols, bitsetMaxSymbols);
+    }
+    
+    /**
+     * Builds the lookup structures over an already compiled CSR layout (rows sorted by column).
+     */
+    private RelationStore(int[] rowOffsets, int[] columns, ProximityRelation[] relations, int denseMaxSymbols, int bitsetMaxSymbols) {
+        this.size = rowOffsets.length - 1;
+        this.denseMaxSymbols = denseMaxSymbols;
+        this.bitsetMaxSymbols = bitsetMaxSymbols;
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+        this.relations = relations;
+        
+        if (size <= denseMaxSymbols) {
+            denseSlots = new int[size * size];
+            Arrays.fill(denseSlots, -1);
+            for (int f = 0; f < size; f++) {
+                for (int slot = rowOffsets[f]; slot < rowOffsets[f + 1]; slot++) {
+                    denseSlots[f * size + columns[slot]] = slot;
+                }
+            }
+        } else {
+            denseSlots = null;
+        }
+        
+        if (size <= bitsetMaxSymbols) {
+            words = (size + 63) >>> 6;
+            proximateBits = new long[size * words];
+            for (int f = 0; f < size; f++) {
+                for (int slot = rowOffsets[f]; slot < rowOffsets[f + 1]; slot++) {
+                    proximateBits[f * words + (columns[slot] >>> 6)] |= 1L << columns[slot];
+                }
+            }
+        } else {
+            words = 0;
+            proximateBits = null;
+        }
+        
+        if (size <= denseMaxSymbols && proximateBits != null) {
+            // 'f' and 'g' are compatible iff 'g' is a proximate of any proximate of 'f'
+            compatibleBits = new long[size * words];
+            for (int f = 0; f < size; f++) {
+                for (int slot = rowOffsets[f]; slot < rowOffsets[f + 1]; slot++) {
+                    int h = columns[slot];
+                    for (int word = 0; word < words; word++) {
+                        compatibleBits[f * words + word] |= proximateBits[h * words + word];
+                    }
+                }
+            }
+        } else {
+            compatibleBits = null;
+        }
+    }
+    
+    /**
+     * The same store, without the relations with a proximity below <b>lambda</b> (identity relations are always kept).
+     * <br>
+     * Masks the compiled rows in a single pass, so the local indices and the order within each row stay the same.
+     */
+    RelationStore above(float lambda) {
+        int[] keptOffsets = new int[size + 1];
+        int[] keptColumns = new int[columns.length];
+        ProximityRelation[] keptRelations = new ProximityRelation[relations.length];
+        int kept = 0;
+        for (int f = 0; f < size; f++) {
+            for (int slot = rowOffsets[f]; slot < rowOffsets[f + 1]; slot++) {
+                if (relations[slot].proximity >= lambda) {
+                    keptColumns[kept] = columns[slot];
+                    keptRelations[kept] = relations[slot];
+                    kept++;
+                }
+            }
+            keptOffsets[f + 1] = kept;
+        }
+        return new RelationStore(keptOffsets, Arrays.copyOf(keptColumns, kept), Arrays.copyOf(keptRelations, kept),
+                denseMaxSymbols, bitsetMaxSymbols);
+    }
+    
+    /**
+     * @return the relation between 'f' and 'g', or <b>null</b> if they aren't proximates
+     */
+    ProximityRelation relation(int f, int g) {
+        int slot;
+        if (denseSlots != null) {
+            slot = denseSlots[f * size + g];
+        } else {
+            slot = Arrays.binarySearch(columns, rowOffsets[f], rowOffsets[f + 1], g);
+        }
+        return slot < 0 ? null : relations[slot];
+    }
+    
+    /**
+     * @param fs  local indices of the functions/constants (not empty)
+     * @return the local indices of all common proximates of <b>fs</b>, in ascending order
+     */
+    int[] commonProximates(int[] fs) {
+        assert fs.length > 0;
+        if (proximateBits != null) {
+            long[] common = Arrays.copyOfRange(proximateBits, fs[0] * words, (fs[0] + 1) * words);
+            for (int idx = 1; idx < fs.length; idx++) {
+                int offset = fs[idx] * words;
+                for (int word = 0; word < words; word++) {
+                    common[word] &= proximateBits[offset + word];
+                }
+            }
+            int count = 0;
+            for (long word : common) {
+                count += Long.bitCount(word);
+            }
+            int[] result = new int[count];
+            int found = 0;
+            for (int word = 0; word < words; word++) {
+                for (long bits = common[word]; bits != 0; bits &= bits - 1) {
+                    result[found++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return result;
+        }
+        // intersect sorted rows
+        int[] common = Arrays.copyOfRange(columns, rowOffsets[fs[0]], rowOffsets[fs[0] + 1]);
+        int commonSize = common.length;
+        for (int idx = 1; idx < fs.length && commonSize > 0; idx++) {
+            int found = 0;
+            int slot = rowOffsets[fs[idx]], end = rowOffsets[fs[idx] + 1];
+            for (int candidate = 0; candidate < commonSize && slot < end; ) {
+                if (common[candidate] < columns[slot]) {
+                    candidate++;
+                } else if (common[candidate] > columns[slot]) {
+                    slot++;
+                } else {
+                    common[found++] = common[candidate++];
+                    slot++;
+                }
+            }
+            commonSize = found;
+        }
+        return Arrays.copyOf(common, commonSize);
+    }
+    
+    /**
+     * @return whether 'f' and 'g' have at least one common proximate
+     */
+    boolean compatible(int f, int g) {
+        if (compatibleBits != null) {
+            return (compatibleBits[f * words + (g >>> 6)] & 1L << g) != 0;
+        }
+        if (proximateBits != null) {
+            for (int word = 0; word < words; word++) {
+                if ((proximateBits[f * words + word] & proximateBits[g * words + word]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int fSlot = rowOffsets[f], gSlot = rowOffsets[g]; fSlot < rowOffsets[f + 1] && gSlot < rowOffsets[g + 1]; ) {
+            if (columns[fSlot] < columns[gSlot]) {
+                fSlot++;
+            } else if (columns[fSlot] > columns[gSlot]) {
+                gSlot++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Slots of the proximity class of 'f' are <b>rowStart(f)</b> ... <b>rowEnd(f) - 1</b>.
+     */
+    int rowStart(int f) {
+        return rowOffsets[f];
+    }
+    
+    int rowEnd(int f) {
+        return rowOffsets[f + 1];
+    }
+    
+    /**
+     * @return the local index of the proximate in the given slot
+     */
+    int column(int slot) {
+        return columns[slot];
+    }
+    
+    ProximityRelation relationAt(int slot) {
+        return relations[slot];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    static class Slot {
+        final int g;
+        final ProximityRelation relation;
+        
+        Slot(int g, ProximityRelation relation) {
+            this.g = g;
+            this.relation = relation;
+        }
+    }
+}
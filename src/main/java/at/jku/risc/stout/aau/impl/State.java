@@ -2,9 +2,7 @@ package at.jku.risc.stout.aau.impl;
 
 import at.jku.risc.stout.aau.term.GroundishTerm;
 import at.jku.risc.stout.aau.util.ArraySet;
-
-import java.util.ArrayDeque;
-import java.util.Queue;
+import at.jku.risc.stout.aau.util.PersistentQueue;
 
 /**
  * {@linkplain State States} are mutable representations of the branching program states during a
@@ -13,26 +11,27 @@ import java.util.Queue;
  *     <li> {@linkplain State#s} is the substitutions needed to arrive at the state
  *     <li> {@linkplain State#expressions} is the remaining set of sub-terms to be reduced
  * </ul>
- * Similarly to {@linkplain Config}, when branching, a new {@linkplain State#copy()} is created per branch.
+ * Similarly to {@linkplain Config}, when branching, a new {@linkplain State#copy()} is created per branch,
+ * which only costs O(1) thanks to the {@linkplain PersistentQueue persistent} queues.
  * <br><br>
  * A {@linkplain State} with no remaining {@linkplain Expression Expressions} is a success state.
  */
 class State {
-    public final Queue<Substitution> s;
-    public final Queue<Expression> expressions;
+    public PersistentQueue<Substitution> s;
+    public PersistentQueue<Expression> expressions;
     
     private int freshVar;
     
     public State(ArraySet<GroundishTerm> T, int freshVar) {
-        this.expressions = new ArrayDeque<>();
-        this.s = new ArrayDeque<>();
+        this.expressions = PersistentQueue.empty();
+        this.s = PersistentQueue.empty();
         this.freshVar = freshVar;
-        expressions.add(new Expression(freshVar(), T));
+        addExpression(new Expression(freshVar(), T));
     }
     
     private State(State original) {
-        this.expressions = new ArrayDeque<>(original.expressions);
-        this.s = new ArrayDeque<>(original.s);
+        this.expressions = original.expressions;
+        this.s = original.s;
         this.freshVar = original.freshVar;
     }
     
@@ -40,6 +39,20 @@ class State {
         return new State(this);
     }
     
+    public Expression removeExpression() {
+        Expression expression = expressions.peek();
+        expressions = expressions.rest();
+        return expression;
+    }
+    
+    public void addExpression(Expression expression) {
+        expressions = expressions.with(expression);
+    }
+    
+    public void addSubstitution(Substitution substitution) {
+        s = s.with(substitution);
+    }
+    
     public int freshVar() {
         return freshVar++;
     }
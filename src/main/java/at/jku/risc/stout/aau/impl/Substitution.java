@@ -3,12 +3,12 @@ package at.jku.risc.stout.aau.impl;
 import at.jku.risc.stout.aau.term.FunctionTerm;
 import at.jku.risc.stout.aau.term.GroundishTerm;
 import at.jku.risc.stout.aau.term.Term;
+import at.jku.risc.stout.aau.term.TermFactory;
 import at.jku.risc.stout.aau.term.VariableTerm;
 import at.jku.risc.stout.aau.util.Data;
 import at.jku.risc.stout.aau.util.Panic;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.Collection;
 
 /**
  * Usually part of a chain of substitutions which will later be applied to a term.
@@ -22,22 +22,20 @@ public class Substitution {
         this.substitute = substitute;
     }
     
-    public static Term applyAll(Queue<Substitution> substitutions, Term baseTerm) {
+    /**
+     * Applies the whole chain of substitutions in one pass (see {@linkplain SubstitutionMap}).
+     */
+    public static Term applyAll(Collection<Substitution> substitutions, Term baseTerm) {
         if (substitutions.isEmpty()) {
             return baseTerm;
         }
-        substitutions = new ArrayDeque<>(substitutions);
-        Term term = baseTerm;
-        for (Substitution substitution : substitutions) {
-            term = substitution.apply(term);
-        }
-        return term;
+        return new SubstitutionMap(substitutions).apply(baseTerm);
     }
     
     /**
      * Type level assertion that there are no unsubstituted variables (besides ANON) remaining after substitution
      */
-    public static GroundishTerm applyAll_forceGroundish(Queue<Substitution> substitutions, Term baseTerm) {
+    public static GroundishTerm applyAll_forceGroundish(Collection<Substitution> substitutions, Term baseTerm) {
         Term term = applyAll(substitutions, baseTerm);
         try {
             return GroundishTerm.force(term);
@@ -57,7 +55,7 @@ public class Substitution {
             throw Panic.state("Unknown Term type used in substitution: %s", term.getClass());
         }
         FunctionTerm functionTerm = (FunctionTerm) term;
-        return new FunctionTerm(functionTerm.head(), Data.mapToList(functionTerm.arguments(), this::apply));
+        return TermFactory.functionTerm(functionTerm.symbol(), Data.mapToList(functionTerm.arguments(), this::apply));
     }
     
     @Override
@@ -0,0 +1,76 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.term.FunctionTerm;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.Term;
+import at.jku.risc.stout.aau.term.TermFactory;
+import at.jku.risc.stout.aau.term.VariableTerm;
+import at.jku.risc.stout.aau.util.Panic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiled form of a chain of {@linkplain Substitution Substitutions}, which resolves all of them in a single traversal.
+ * <br><br>
+ * Throughout the algorithm, each variable is substituted at most once, and substitutes only ever contain fresh variables.
+ * So instead of replaying the chain in order (rebuilding the whole term per step),
+ * we can store the bindings in an array indexed by variable, and resolve them recursively.
+ * <br>
+ * Each resolved binding is cached, so building a term is linear in the size of the result.
+ * Sub-terms without any bound variables are reused as-is.
+ */
+public class SubstitutionMap {
+    private final Term[] bindings, resolved;
+    
+    public SubstitutionMap(Collection<Substitution> substitutions) {
+        int maxVar = -1;
+        for (Substitution substitution : substitutions) {
+            maxVar = Math.max(maxVar, substitution.var);
+        }
+        bindings = new Term[maxVar + 1];
+        resolved = new Term[maxVar + 1];
+        for (Substitution substitution : substitutions) {
+            // once substituted, a variable is gone - so later bindings of the same variable can't have any effect
+            if (bindings[substitution.var] == null) {
+                bindings[substitution.var] = substitution.substitute;
+            }
+        }
+    }
+    
+    public Term apply(Term term) {
+        if (term instanceof VariableTerm) {
+            int var = ((VariableTerm) term).var;
+            if (var >= bindings.length || bindings[var] == null) {
+                return term;
+            }
+            if (resolved[var] == null) {
+                resolved[var] = apply(bindings[var]);
+            }
+            return resolved[var];
+        }
+        if (term instanceof GroundishTerm) {
+            return term;
+        }
+        if (!(term instanceof FunctionTerm)) {
+            throw Panic.state("Unknown Term type used in substitution: %s", term.getClass());
+        }
+        FunctionTerm functionTerm = (FunctionTerm) term;
+        List<Term> arguments = functionTerm.arguments();
+        List<Term> applied = null;
+        for (int idx = 0; idx < arguments.size(); idx++) {
+            Term argument = arguments.get(idx);
+            Term appliedArgument = apply(argument);
+            if (applied == null && appliedArgument != argument) {
+                // first changed argument - from here on, we need a new term
+                applied = new ArrayList<>(arguments.size());
+                applied.addAll(arguments.subList(0, idx));
+            }
+            if (applied != null) {
+                applied.add(appliedArgument);
+            }
+        }
+        return applied == null ? term : TermFactory.functionTerm(functionTerm.symbol(), applied);
+    }
+}
@@ -14,11 +14,24 @@ import java.util.Set;
  * See {@linkplain GroundTerm} for representing function terms in the problem statement.
  */
 public class FunctionTerm implements Term {
+    private final int symbol;
     private final String head;
     private final List<Term> arguments;
     
+    /**
+     * Set if this is the canonical instance of its structure (see {@linkplain TermFactory}).
+     */
+    boolean interned = false;
+    
     public FunctionTerm(String head, List<Term> arguments) {
-        this.head = head.intern();
+        this.head = SymbolTable.canonical(head);
+        this.symbol = SymbolTable.id(this.head);
+        this.arguments = Collections.unmodifiableList(arguments);
+    }
+    
+    public FunctionTerm(int symbol, List<Term> arguments) {
+        this.symbol = symbol;
+        this.head = SymbolTable.name(symbol);
         this.arguments = Collections.unmodifiableList(arguments);
     }
     
@@ -28,6 +41,13 @@ public class FunctionTerm implements Term {
     public String head() {
         return head;
     }
+    
+    /**
+     * The {@linkplain SymbolTable} id of the head.
+     */
+    public int symbol() {
+        return symbol;
+    }
 
     public List<Term> arguments() {
         return arguments;
@@ -36,10 +56,12 @@ public class FunctionTerm implements Term {
     @Override
     public Set<Integer> namedVariables() {
         if (v_named == null) {
-            v_named = new HashSet<>();
+            // canonical terms can be shared between threads, so only publish the set once it's complete
+            Set<Integer> namedVariables = new HashSet<>();
             for (Term argument : arguments) {
-                v_named.addAll(argument.namedVariables());
+                namedVariables.addAll(argument.namedVariables());
             }
+            v_named = Collections.unmodifiableSet(namedVariables);
         }
         return v_named;
     }
@@ -49,7 +71,7 @@ public class FunctionTerm implements Term {
     @Override
     public int hashCode() {
         if (hash == null) {
-            hash = head.hashCode() + 31 * arguments.hashCode();
+            hash = symbol + 31 * arguments.hashCode();
         }
         return hash;
     }
@@ -66,7 +88,11 @@ public class FunctionTerm implements Term {
         if (hashCode() != otherFunctionTerm.hashCode()) {
             return false;
         }
-        return head == otherFunctionTerm.head && arguments.equals(otherFunctionTerm.arguments);
+        if (interned && otherFunctionTerm.interned) {
+            // canonical instances are unique per structure
+            return false;
+        }
+        return symbol == otherFunctionTerm.symbol && arguments.equals(otherFunctionTerm.arguments);
     }
     
     @Override
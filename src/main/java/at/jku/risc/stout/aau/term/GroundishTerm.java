@@ -16,16 +16,35 @@ import static at.jku.risc.stout.aau.term.Anon.ANON;
  * and the solution's {@linkplain Witness Witnesses} all have this property.
  */
 public abstract class GroundishTerm implements Term {
+    private final int symbol;
     private final String head;
+    
+    /**
+     * Set if this is the canonical instance of its structure (see {@linkplain TermFactory}).
+     */
+    boolean interned = false;
 
     protected GroundishTerm(String head) {
-        this.head = head.intern();
+        this.head = SymbolTable.canonical(head);
+        this.symbol = SymbolTable.id(this.head);
+    }
+    
+    protected GroundishTerm(int symbol) {
+        this.symbol = symbol;
+        this.head = SymbolTable.name(symbol);
     }
 
     @Override
     public String head() {
         return head;
     }
+    
+    /**
+     * The {@linkplain SymbolTable} id of the head.
+     */
+    public int symbol() {
+        return symbol;
+    }
 
     public abstract List<? extends GroundishTerm> arguments();
 
@@ -41,7 +60,7 @@ public abstract class GroundishTerm implements Term {
             throw Panic.state("Couldn't cast sub-term '%s' of type %s", term, term.getClass());
         }
         FunctionTerm functionTerm = (FunctionTerm) term;
-        return new GroundishTermImpl(functionTerm.head(), Data.mapToList(functionTerm.arguments(), GroundishTermImpl::force));
+        return TermFactory.groundishTerm(functionTerm.symbol(), Data.mapToList(functionTerm.arguments(), GroundishTermImpl::force));
     }
 
     @Override
@@ -54,7 +73,7 @@ public abstract class GroundishTerm implements Term {
     @Override
     public int hashCode() {
         if (hash == null) {
-            hash = head().hashCode() + 31 * arguments().hashCode();
+            hash = symbol + 31 * arguments().hashCode();
         }
         return hash;
     }
@@ -71,7 +90,15 @@ public abstract class GroundishTerm implements Term {
             return false;
         }
         GroundishTerm otherFunctionTerm = (GroundishTerm) other;
-        return head() == otherFunctionTerm.head() && arguments().equals(otherFunctionTerm.arguments());
+        if ((this instanceof MappedVariableTerm) != (other instanceof MappedVariableTerm)) {
+            // the variable 'a' isn't the constant 'a()'
+            return false;
+        }
+        if (interned && otherFunctionTerm.interned && getClass() == other.getClass()) {
+            // canonical instances are unique per structure
+            return false;
+        }
+        return symbol == otherFunctionTerm.symbol && arguments().equals(otherFunctionTerm.arguments());
     }
 
     @Override
@@ -14,6 +14,11 @@ public class GroundishTermImpl extends GroundishTerm {
         super(head);
         this.arguments = arguments;
     }
+    
+    public GroundishTermImpl(int symbol, List<GroundishTerm> arguments) {
+        super(symbol);
+        this.arguments = arguments;
+    }
 
     @Override
     public List<GroundishTerm> arguments() {
@@ -0,0 +1,91 @@
+package at.jku.risc.stout.aau.term;
+
+import at.jku.risc.stout.aau.util.Panic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a dense <b>int</b> id to each function/variable symbol, so the solver core can work with ids instead of Strings.
+ * <br>
+ * Every term and {@linkplain at.jku.risc.stout.aau.ProximityRelation ProximityRelation} looks up its symbols once on construction,
+ * and from there on, comparisons/lookups are done on the ids.
+ * Strings are only needed again for rendering.
+ * <br><br>
+ * The table is shared by the whole process (since {@linkplain TermFactory terms} are shared between problems as well), and it's thread safe.
+ * <br><br>
+ * Ids are never reassigned: callers (e.g. custom {@linkplain at.jku.risc.stout.aau.FuzzySystem FuzzySystems})
+ * may hold on to a bare id, without anything that references the symbol, and still get the same symbol back from {@linkplain SymbolTable#name(int)}.
+ */
+public final class SymbolTable {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int size = 0;
+    
+    private SymbolTable() {
+    }
+    
+    /**
+     * @return the id of the given symbol, assigning a new one on its first occurrence
+     */
+    public static int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (SymbolTable.class) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            ids.put(name, size);
+            return size++;
+        }
+    }
+    
+    /**
+     * @return the canonical String instance of the given symbol, i.e. the instance which first registered it
+     */
+    public static String canonical(String name) {
+        return name(id(name));
+    }
+    
+    /**
+     * @return the canonical String instance of the symbol with the given id
+     */
+    public static String name(int id) {
+        String[] names = SymbolTable.names;
+        String name = id >= 0 && id < names.length ? names[id] : null;
+        if (name == null) {
+            throw Panic.arg("No symbol is assigned to id %s", id);
+        }
+        return name;
+    }
+    
+    /**
+     * Used for logging.
+     */
+    public static List<String> names(int... ids) {
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(name(id));
+        }
+        return names;
+    }
+    
+    /**
+     * @return the number of symbols assigned so far, i.e. an upper bound for all ids
+     */
+    public static int size() {
+        synchronized (SymbolTable.class) {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package at.jku.risc.stout.aau.term;
+
+import at.jku.risc.stout.aau.util.WeakInterner;
+
+import java.util.List;
+
+/**
+ * Hash-consing factory for terms:
+ * structurally equal terms created through the factory are the same instance.
+ * <br><br>
+ * This is used by the {@linkplain at.jku.risc.stout.aau.impl.Parser Parser}, {@linkplain GroundishTerm#force(Term)}
+ * and the {@linkplain at.jku.risc.stout.aau.impl.Substitution substitutions},
+ * so duplicate sub-terms of big inputs are only stored once, and comparing two factory-made terms of the same class
+ * only takes a reference comparison.
+ * <br>
+ * Terms constructed directly (not through the factory) still work, they just fall back to the structural comparison.
+ * <br><br>
+ * The interning tables only hold weak references, so unused terms can still be garbage collected.
+ */
+public final class TermFactory {
+    private static final WeakInterner<GroundTerm> groundTerms = new WeakInterner<>();
+    private static final WeakInterner<MappedVariableTerm> mappedVariables = new WeakInterner<>();
+    private static final WeakInterner<GroundishTermImpl> groundishTerms = new WeakInterner<>();
+    private static final WeakInterner<FunctionTerm> functionTerms = new WeakInterner<>();
+    
+    private TermFactory() {
+    }
+    
+    public static GroundTerm groundTerm(String head, List<GroundTerm> arguments) {
+        return groundTerms.intern(new GroundTerm(head, arguments), term -> term.interned = true);
+    }
+    
+    public static MappedVariableTerm mappedVariable(String head) {
+        return mappedVariables.intern(new MappedVariableTerm(head), term -> term.interned = true);
+    }
+    
+    public static GroundishTerm groundishTerm(int symbol, List<GroundishTerm> arguments) {
+        return groundishTerms.intern(new GroundishTermImpl(symbol, arguments), term -> term.interned = true);
+    }
+    
+    public static FunctionTerm functionTerm(int symbol, List<Term> arguments) {
+        return functionTerms.intern(new FunctionTerm(symbol, arguments), term -> term.interned = true);
+    }
+}
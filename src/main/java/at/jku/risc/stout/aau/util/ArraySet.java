@@ -114,14 +114,7 @@ public class ArraySet<E> implements Set<E> {
     @SuppressWarnings("unchecked")
     public <T> T[] toArray(T[] a) {
         if (a.length < size()) {
-            a = (T[]) new Object[size()];
-        }
-        try {
-            for (E element : this) {
-                T ignored = (T) element;
-            }
-        } catch (ClassCastException e) {
-            throw new ArrayStoreException();
+            a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size());
         }
         int idx = 0;
         for (E element : this) {
@@ -137,9 +130,9 @@ public class ArraySet<E> implements Set<E> {
     
     /**
      * ArraySets don't in principle need to be ordered, and the decision is mostly based on performance in
-     * {@linkplain at.jku.risc.stout.aau.impl.PredefinedFuzzySystem#commonProximates(ArraySet) PredefinedFuzzySystem.commonProximates(ArraySet)}.
+     * the memory of DECOMPOSE outcomes (see {@linkplain at.jku.risc.stout.aau.impl.Algorithm}).
      * <br><br>
-     * Memory "hits" usually greatly outnumber the "misses" due to permutations of a single set of function symbols.
+     * Memory "hits" usually greatly outnumber the "misses" due to permutations of a single set of terms.
      * This usually makes it worth saving the redundant permutations in exchange for an O(n) equality check (versus O(n^2) in the unordered case).
      */
     @Override
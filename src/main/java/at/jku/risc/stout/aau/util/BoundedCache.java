@@ -0,0 +1,66 @@
+package at.jku.risc.stout.aau.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe cache, which holds at most a fixed number of entries, evicting the least recently used ones first.
+ * <br><br>
+ * The table is split into a few independently locked stripes, to reduce contention between threads,
+ * so the eviction order is only LRU per stripe.
+ */
+public class BoundedCache<K, V> {
+    private static final int STRIPES = 16;
+    
+    private final Map<K, V>[] stripes;
+    
+    public BoundedCache(int maxSize) {
+        if (maxSize < STRIPES) {
+            throw Panic.arg("Cache size must be at least %s, was %s", STRIPES, maxSize);
+        }
+        int stripeSize = maxSize / STRIPES;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<K, V>[] stripes = new Map[STRIPES];
+        this.stripes = stripes;
+        for (int idx = 0; idx < STRIPES; idx++) {
+            stripes[idx] = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > stripeSize;
+                }
+            };
+        }
+    }
+    
+    /**
+     * @return the cached value, or <b>null</b> if there is none
+     */
+    public V get(K key) {
+        Map<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+    
+    public void put(K key, V value) {
+        Map<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Map<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+    
+    private Map<K, V> stripe(K key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
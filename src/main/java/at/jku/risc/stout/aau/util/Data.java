@@ -1,7 +1,6 @@
 package at.jku.risc.stout.aau.util;
 
 import java.util.*;
-import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -61,13 +60,6 @@ public class Data {
         return true;
     }
     
-    public static <E, T> Set<E> permute(Set<E> set, Collection<Set<T>> steps, BiFunction<E, T, E> mapping) {
-        for (Set<T> transforms : steps) {
-            set = set.stream().flatMap(e -> transforms.stream().map(t -> mapping.apply(e, t))).collect(Collectors.toSet());
-        }
-        return set;
-    }
-    
     public static <E> E getAny(Set<E> set) {
         for (E e : set) {
             return e;
@@ -0,0 +1,155 @@
+package at.jku.risc.stout.aau.util;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable FIFO queue, where {@linkplain PersistentQueue#with(Object) adding} or {@linkplain PersistentQueue#rest() removing}
+ * an element returns a new queue, which shares its structure with the original.
+ * <br>
+ * This makes "copying" a queue free, since both copies can just keep referencing the same instance.
+ * <br><br>
+ * Implemented as a pair of linked lists: <b>front</b> holds the next elements in order,
+ * and <b>back</b> holds the most recently added elements in reverse order.
+ * Once <b>front</b> runs out, <b>back</b> is reversed to become the new <b>front</b>.
+ * <br><br>
+ * Used as a single FIFO queue, each element is reversed at most once, so all operations are amortized O(1).
+ * That amortization doesn't carry over to versions which are shared, since every version may need its own reversal.
+ * To limit the damage, each version remembers its reversed <b>back</b>: calling {@linkplain PersistentQueue#rest()}
+ * on the same version in several branches, or iterating it several times, only reverses it once.
+ * However, two versions which were derived from the same one (e.g. by adding different elements) still reverse separately,
+ * so that costs O(n) per version.
+ * <br><br>
+ * <b>null</b> elements are undefined.
+ */
+public final class PersistentQueue<E> extends AbstractCollection<E> {
+    private static final PersistentQueue<?> EMPTY = new PersistentQueue<>(null, null, 0);
+    
+    private final Node<E> front, back;
+    private final int size;
+    /**
+     * Lazily computed reversal of <b>back</b> (see {@linkplain PersistentQueue#reversedBack()}).
+     * Racing threads may both compute it, but the nodes are immutable, so either result is fine.
+     */
+    private Node<E> reversedBack;
+    
+    private PersistentQueue(Node<E> front, Node<E> back, int size) {
+        // invariant: front is only empty if the whole queue is
+        assert front != null || back == null;
+        this.front = front;
+        this.back = back;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentQueue<E> empty() {
+        return (PersistentQueue<E>) EMPTY;
+    }
+    
+    public static <E> PersistentQueue<E> of(Collection<E> elements) {
+        PersistentQueue<E> queue = empty();
+        for (E element : elements) {
+            queue = queue.with(element);
+        }
+        return queue;
+    }
+    
+    /**
+     * @return a new queue, with <b>element</b> added to the end
+     */
+    public PersistentQueue<E> with(E element) {
+        if (front == null) {
+            return new PersistentQueue<>(new Node<>(element, null), null, 1);
+        }
+        return new PersistentQueue<>(front, new Node<>(element, back), size + 1);
+    }
+    
+    /**
+     * @return the first element of the queue
+     */
+    public E peek() {
+        if (front == null) {
+            throw new NoSuchElementException();
+        }
+        return front.element;
+    }
+    
+    /**
+     * @return a new queue, without the first element
+     */
+    public PersistentQueue<E> rest() {
+        if (front == null) {
+            throw new NoSuchElementException();
+        }
+        if (front.next != null) {
+            return new PersistentQueue<>(front.next, back, size - 1);
+        }
+        return new PersistentQueue<>(reversedBack(), null, size - 1);
+    }
+    
+    private Node<E> reversedBack() {
+        Node<E> reversed = reversedBack;
+        if (reversed == null && back != null) {
+            reversed = Node.reversed(back);
+            reversedBack = reversed;
+        }
+        return reversed;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            Node<E> cursor = front;
+            boolean reachedBack = false;
+            
+            @Override
+            public boolean hasNext() {
+                if (cursor == null && !reachedBack) {
+                    cursor = reversedBack();
+                    reachedBack = true;
+                }
+                return cursor != null;
+            }
+            
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                E element = cursor.element;
+                cursor = cursor.next;
+                return element;
+            }
+        };
+    }
+    
+    private static class Node<E> {
+        final E element;
+        final Node<E> next;
+        
+        Node(E element, Node<E> next) {
+            this.element = element;
+            this.next = next;
+        }
+        
+        static <E> Node<E> reversed(Node<E> list) {
+            Node<E> reversed = null;
+            for (Node<E> node = list; node != null; node = node.next) {
+                reversed = new Node<>(node.element, reversed);
+            }
+            return reversed;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package at.jku.risc.stout.aau.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Thread safe interning table, which maps each value to a canonical instance of equal values.
+ * <br><br>
+ * Canonical instances are only weakly referenced, so they can still be garbage collected once nobody else uses them.
+ * The table is split into a few independently locked stripes, to reduce contention between threads.
+ */
+public class WeakInterner<T> {
+    private static final int STRIPES = 16;
+    
+    private final Map<T, WeakReference<T>>[] stripes;
+    
+    public WeakInterner() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<T, WeakReference<T>>[] stripes = new Map[STRIPES];
+        this.stripes = stripes;
+        for (int idx = 0; idx < STRIPES; idx++) {
+            stripes[idx] = new WeakHashMap<>();
+        }
+    }
+    
+    /**
+     * @param onCanonical called (under lock) if <b>value</b> becomes the canonical instance, before any other thread can see it
+     * @return the canonical instance equal to <b>value</b>
+     */
+    public T intern(T value, Consumer<T> onCanonical) {
+        int hash = value.hashCode();
+        Map<T, WeakReference<T>> stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            WeakReference<T> reference = stripe.get(value);
+            T canonical = reference == null ? null : reference.get();
+            if (canonical == null) {
+                onCanonical.accept(value);
+                stripe.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+}
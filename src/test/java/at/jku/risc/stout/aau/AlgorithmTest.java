@@ -1,6 +1,9 @@
 package at.jku.risc.stout.aau;
 
 import at.jku.risc.stout.aau.impl.Algorithm;
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
+import at.jku.risc.stout.aau.impl.Parser;
+import at.jku.risc.stout.aau.term.GroundishTerm;
 import at.jku.risc.stout.aau.util.Data;
 import at.jku.risc.stout.aau.util.Pair;
 import org.apache.logging.log4j.Level;
@@ -10,9 +13,45 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class AlgorithmTest {
+    public static String smallEquation() {
+        return "f(a, b) ?= g(a, c, d)";
+    }
+    
+    public static String smallRelations() {
+        return "h f [0.7] {1 1, 3 2} ; h g [0.8] {1 1, 3 3} ; f g [0.1] {1 1, 2 1}";
+    }
+    
+    public static String mediumEquation() {
+        return "f(h(a, b(), c(), d()), b()) ?= g(f(a, b()), b(), c())";
+    }
+    
+    public static String mediumRelations() {
+        return "h f [0.7] {1 1, 3 2, 4 2} ; h g [0.8] {1 1, 3 3} ; c d [0.6] {}";
+    }
+    
     public static String bigEquation() { // |f| = 2  |g| = 3  |h| = 3
         String l_h1 = "h( a(), b(), f(a(),b()) )";
         String l_g1 = String.format("g( c(), d(), %s )", l_h1);
@@ -33,8 +72,8 @@ public class AlgorithmTest {
     
     @Test
     public void small() {
-        String equation = "f(a, b) ?= g(a, c, d)";
-        String relations = "h f [0.7] {1 1, 3 2} ; h g [0.8] {1 1, 3 3} ; f g [0.1] {1 1, 2 1}";
+        String equation = smallEquation();
+        String relations = smallRelations();
         
         Problem problem = new Problem(equation).proximityRelations(relations).lambda(0.5f);
         TestUtils.verify(problem);
@@ -42,8 +81,8 @@ public class AlgorithmTest {
     
     @Test
     public void medium() {
-        String equation = "f(h(a, b(), c(), d()), b()) ?= g(f(a, b()), b(), c())";
-        String relations = "h f [0.7] {1 1, 3 2, 4 2} ; h g [0.8] {1 1, 3 3} ; c d [0.6] {}";
+        String equation = mediumEquation();
+        String relations = mediumRelations();
         
         Problem problem = new Problem(equation).proximityRelations(relations).lambda(0.5f);
         TestUtils.verify(problem);
@@ -58,6 +97,403 @@ public class AlgorithmTest {
         TestUtils.verify(problem);
     }
     
+    @Test
+    public void parallel() {
+        Problem sequential = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false);
+        Problem parallel = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false).parallelism(4);
+        assert TestUtils.generalizations(TestUtils.verify(sequential)).equals(TestUtils.generalizations(TestUtils.verify(parallel)));
+    }
+    
+    @Test
+    public void compactWitnesses() {
+        Problem problem = new Problem("f(h(a, b(), c(), d()), b()) ?= g(f(a, b()), b(), c())")
+                .proximityRelations("h f [0.7] {1 1, 3 2, 4 2} ; h g [0.8] {1 1, 3 3} ; c d [0.6] {}").lambda(0.5f);
+        for (Solution solution : TestUtils.verify(problem)) {
+            for (Witness witness : new Witness[]{solution.lhs, solution.rhs}) {
+                Map<Integer, Set<GroundishTerm>> copy = new HashMap<>(witness.substitutions);
+                assert witness.substitutions.keySet().equals(copy.keySet());
+                for (Map.Entry<Integer, Set<GroundishTerm>> entry : copy.entrySet()) {
+                    assert witness.substitutions.get(entry.getKey()).containsAll(entry.getValue());
+                }
+                assert witness.substitutions.get(-1) == null && !witness.substitutions.containsKey(-1);
+                assertThrows(UnsupportedOperationException.class, () -> witness.substitutions.put(-1, Collections.emptySet()));
+                assertThrows(UnsupportedOperationException.class, () -> copy.values().iterator().next().clear());
+            }
+        }
+    }
+    
+    @Test
+    public void lazyProximates() {
+        Problem problem = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f);
+        for (Solution solution : problem.solve()) {
+            Pair<Set<GroundishTerm>, Set<GroundishTerm>> enumerated = solution.enumerate();
+            List<GroundishTerm> lhs = solution.lhsProximates().collect(Collectors.toList());
+            List<GroundishTerm> rhs = solution.rhsProximates().parallel().collect(Collectors.toList());
+            // no duplicates, and the same terms regardless of splitting
+            assert lhs.size() == enumerated.left.size() && enumerated.left.containsAll(lhs);
+            assert rhs.size() == enumerated.right.size() && enumerated.right.containsAll(rhs);
+            assert solution.rhsProximates().limit(3).count() == Math.min(3, rhs.size());
+            assert solution.countProximates().equals(Pair.of(BigInteger.valueOf(lhs.size()), BigInteger.valueOf(rhs.size())));
+        }
+        Solution withoutWitnesses = Data.getAny(problem.witnesses(false).solve());
+        assertThrows(IllegalStateException.class, withoutWitnesses::lhsProximates);
+    }
+    
+    @Test
+    public void countProximates() {
+        // 50 unmerged variables, with 3 choices on the left (a, c, d) and 2 on the right (b, e)
+        StringJoiner lhs = new StringJoiner(", ", "f(", ")"), rhs = new StringJoiner(", ", "f(", ")");
+        for (int idx = 0; idx < 50; idx++) {
+            lhs.add("a()");
+            rhs.add("b()");
+        }
+        Problem problem = new Problem(lhs + " ?= " + rhs).proximityRelations("a c [0.6] {} ; a d [0.7] {} ; b e [0.6] {}")
+                .lambda(0.5f).merge(false);
+        Solution solution = Data.getAny(problem.solve());
+        assert solution.countProximates().equals(Pair.of(BigInteger.valueOf(3).pow(50), BigInteger.valueOf(2).pow(50)));
+        // too many to index on the left, but the right can still be consumed lazily
+        assertThrows(IllegalStateException.class, solution::lhsProximates);
+        assert solution.rhsProximates().parallel().limit(5).count() == 5;
+    }
+    
+    @Test
+    public void listener() {
+        AtomicInteger linear = new AtomicInteger(), solutions = new AtomicInteger(), finished = new AtomicInteger();
+        AtomicInteger steps = new AtomicInteger();
+        SolverListener counting = new SolverListener() {
+            @Override
+            public void decomposed(Collection<? extends ConfigView> children) {
+                assert !children.isEmpty() && Data.all(children, child -> child.generalization() != null);
+                steps.incrementAndGet();
+            }
+            
+            @Override
+            public void linear(ConfigView cfg) {
+                assert cfg.openAUTs() == 0;
+                linear.incrementAndGet();
+            }
+            
+            @Override
+            public void solution(Solution solution) {
+                solutions.incrementAndGet();
+            }
+            
+            @Override
+            public void finished(SolveResult result) {
+                assert result.isComplete();
+                finished.incrementAndGet();
+            }
+        };
+        for (int parallelism : new int[]{1, 4}) {
+            linear.set(0);
+            solutions.set(0);
+            finished.set(0);
+            Set<Solution> solved = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                    .parallelism(parallelism).listener(counting).solve();
+            assert linear.get() == solved.size() && solutions.get() == solved.size() && finished.get() == 1;
+        }
+        assert steps.get() > 0;
+        
+        Problem logged = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).listener(new LoggingSolverListener());
+        assert logged.solve().size() == logged.listener(SolverListener.NONE).solve().size();
+        assertThrows(IllegalArgumentException.class, () -> logged.listener(null));
+    }
+    
+    @Test
+    public void stats() {
+        List<SolveStats> all = new ArrayList<>();
+        for (int parallelism : new int[]{1, 4}) {
+            SolveResult result = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).merge(false).witnesses(false)
+                    .parallelism(parallelism).solveDetailed();
+            SolveStats stats = result.stats;
+            // every explored config either decomposes or is linear, and (without merging) each linear config is a solution
+            assert stats.get(SolveStats.Metric.CONFIGS_CREATED) <= stats.get(SolveStats.Metric.CONFIGS_EXPLORED);
+            assert stats.get(SolveStats.Metric.CONFIGS_EXPLORED) == stats.get(SolveStats.Metric.DECOMPOSE) + result.solutions.size();
+            assert stats.get(SolveStats.Metric.MAX_FRONTIER) > 0 && stats.get(SolveStats.Metric.SOLVE) > 0;
+            assert stats.get(SolveStats.Metric.TOTAL_NANOS) > 0 && stats.get(SolveStats.Metric.LINEAR_NANOS) > 0;
+            assert stats.get(SolveStats.Metric.EXPAND_NANOS) == 0;
+            all.add(stats);
+        }
+        assert all.get(0).get(SolveStats.Metric.CONFIGS_CREATED) == all.get(1).get(SolveStats.Metric.CONFIGS_CREATED);
+        
+        SolveStats witnessed = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).solveDetailed().stats;
+        assert witnessed.get(SolveStats.Metric.EXPAND_NANOS) > 0 && witnessed.get(SolveStats.Metric.CONJUNCTIONS) > 0;
+        all.add(witnessed);
+        
+        SolveStats sum = SolveStats.sum(all);
+        assert sum.get(SolveStats.Metric.SOLVES) == 3;
+        assert sum.get(SolveStats.Metric.CONFIGS_CREATED) == all.stream().mapToLong(stats -> stats.get(SolveStats.Metric.CONFIGS_CREATED)).sum();
+        assert sum.get(SolveStats.Metric.MAX_FRONTIER) == all.stream().mapToLong(stats -> stats.get(SolveStats.Metric.MAX_FRONTIER)).max().getAsLong();
+        assert sum.asMap().size() == SolveStats.Metric.values().length;
+        
+        // a compiled system's common proximates memory is shared, but each run only counts its own lookups
+        CompiledFuzzySystem compiled = new CompiledFuzzySystem(Parser.parseProximityRelations(bigRelations()), 0.5f);
+        SolveStats first = new Problem(bigEquation()).compiledFuzzySystem(compiled).lambda(0.5f).witnesses(false).solveDetailed().stats;
+        SolveStats second = new Problem(bigEquation()).compiledFuzzySystem(compiled).lambda(0.5f).witnesses(false).solveDetailed().stats;
+        long lookups = first.get(SolveStats.Metric.PROXIMATES_MEMO_HITS) + first.get(SolveStats.Metric.PROXIMATES_MEMO_MISSES);
+        assert first.get(SolveStats.Metric.PROXIMATES_MEMO_MISSES) > 0;
+        assert second.get(SolveStats.Metric.PROXIMATES_MEMO_MISSES) == 0 && second.get(SolveStats.Metric.PROXIMATES_MEMO_HITS) == lookups;
+        assert compiled.proximatesMemoHits() == 0 && compiled.proximatesMemoMisses() == 0;
+    }
+    
+    @Test
+    public void generatedWorkloads() {
+        for (FuzzySystem.RestrictionType restriction : FuzzySystem.RestrictionType.values()) {
+            WorkloadGenerator generator = new WorkloadGenerator(42).alphabet(12).depth(2).restriction(restriction);
+            List<WorkloadGenerator.Workload> workloads = generator.generate(5);
+            // deterministic for the same seed
+            assert workloads.toString().equals(generator.generate(5).toString());
+            assert workloads.get(0).relations.toString().equals(generator.generate().relations.toString());
+            
+            CompiledFuzzySystem compiled = new CompiledFuzzySystem(workloads.get(0).relations, workloads.get(0).arities, 0.5f);
+            assert compiled.restrictionType() == restriction;
+            for (WorkloadGenerator.Workload workload : workloads) {
+                Problem problem = workload.problem().lambda(0.5f);
+                if (restriction.correspondence) {
+                    TestUtils.verify(problem);
+                } else {
+                    // without correspondence, the solutions aren't guaranteed to be minimal, which verify() checks for
+                    assert !problem.solve().isEmpty();
+                }
+            }
+        }
+        assert !new WorkloadGenerator(1).generate(3).toString().equals(new WorkloadGenerator(2).generate(3).toString());
+        
+        // custom proximity distribution, e.g. most relations close to the λ-cut
+        WorkloadGenerator skewed = new WorkloadGenerator(7).proximities(random -> 0.5f + 0.5f * random.nextFloat() * random.nextFloat());
+        assert skewed.generate().relations.toString().equals(skewed.generate().relations.toString());
+        assert Data.all(skewed.generate().relations, relation -> relation.proximity >= 0.5f && relation.proximity <= 1.0f);
+        assert Data.all(new WorkloadGenerator(7).proximities(random -> 0.75f).generate().relations, relation -> relation.proximity == 0.75f);
+    }
+    
+    @Test
+    public void postProcessing() throws InterruptedException {
+        Set<String> expected = TestUtils.generalizations(TestUtils.verify(
+                new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        ExecutorService fixedPool = Executors.newFixedThreadPool(4);
+        try {
+            for (Executor executor : new Executor[]{forkJoinPool, fixedPool}) {
+                for (int parallelism : new int[]{1, 4}) {
+                    Problem problem = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                            .parallelism(parallelism).postProcessing(executor);
+                    assert TestUtils.generalizations(TestUtils.verify(problem)).equals(expected);
+                }
+                TestUtils.verify(new Problem("f(h(a, b(), c(), d()), b()) ?= g(f(a, b()), b(), c())")
+                        .proximityRelations("h f [0.7] {1 1, 3 2, 4 2} ; h g [0.8] {1 1, 3 3} ; c d [0.6] {}")
+                        .lambda(0.5f).postProcessing(executor));
+            }
+        } finally {
+            forkJoinPool.shutdown();
+            fixedPool.shutdown();
+        }
+        
+        // once a run stops, post processing which is still queued is skipped
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            single.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            AtomicInteger linear = new AtomicInteger(), solutions = new AtomicInteger();
+            SolverListener listener = new SolverListener() {
+                @Override
+                public void linear(ConfigView cfg) {
+                    linear.incrementAndGet();
+                }
+                
+                @Override
+                public void solution(Solution solution) {
+                    solutions.incrementAndGet();
+                }
+            };
+            for (int parallelism : new int[]{1, 4}) {
+                linear.set(0);
+                SolveResult result = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).merge(false).witnesses(false)
+                        .parallelism(parallelism).postProcessing(single).listener(listener).cancellation(() -> linear.get() > 0).solveDetailed();
+                assert result.limitReached == SolveResult.Limit.CANCELLED && result.solutions.isEmpty();
+            }
+            blocked.countDown();
+            single.shutdown();
+            assert single.awaitTermination(10, TimeUnit.SECONDS);
+            assert solutions.get() == 0;
+        } finally {
+            single.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void compiledFuzzySystem() {
+        CompiledFuzzySystem compiled = new CompiledFuzzySystem(Parser.parseProximityRelations(bigRelations()), 0.5f);
+        Problem fresh = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.6f).witnesses(false);
+        Problem shared = new Problem(bigEquation()).compiledFuzzySystem(compiled).lambda(0.6f).witnesses(false);
+        assert TestUtils.generalizations(TestUtils.verify(fresh)).equals(TestUtils.generalizations(TestUtils.verify(shared)));
+        
+        // symbols which aren't part of the compiled system
+        String relations = "a b [0.9]{} ; b c [0.8]{} ; h f [0.7]{1 1, 1 2} ; h g [0.6]{1 1}";
+        CompiledFuzzySystem example5 = new CompiledFuzzySystem(Parser.parseProximityRelations(relations), 0.5f);
+        for (String equation : new String[]{"f(a(), c()) ?= g(a())", "f(a(), d()) ?= g(a())", "f(x(a()), c()) ?= g(x(b()))"}) {
+            Problem freshProblem = new Problem(equation).proximityRelations(relations).lambda(0.5f);
+            Problem sharedProblem = new Problem(equation).compiledFuzzySystem(example5).lambda(0.5f);
+            assert TestUtils.generalizations(TestUtils.verify(freshProblem)).equals(TestUtils.generalizations(TestUtils.verify(sharedProblem)));
+        }
+        
+        // relations between the compiled λ-cut and the problem's λ-cut must not be visible
+        String band = "a b [0.6]{} ; b c [0.7]{} ; h f [0.75]{1 1, 1 2} ; h g [0.9]{1 1}";
+        CompiledFuzzySystem low = new CompiledFuzzySystem(Parser.parseProximityRelations(band), 0.5f);
+        for (String equation : new String[]{"k(a(), b()) ?= k(c(), c())", "f(a(), c()) ?= g(b())", "f(a(), b()) ?= h(c())"}) {
+            for (float lambda : new float[]{0.5f, 0.65f, 0.8f, 0.95f}) {
+                Problem freshProblem = new Problem(equation).proximityRelations(band).lambda(lambda);
+                Problem sharedProblem = new Problem(equation).compiledFuzzySystem(low).lambda(lambda);
+                assert TestUtils.generalizations(TestUtils.verify(freshProblem)).equals(TestUtils.generalizations(TestUtils.verify(sharedProblem)));
+            }
+        }
+        assert low.atLambda(0.8f) == low.atLambda(0.8f);
+        assert low.atLambda(0.5f) == low;
+        assert low.practicalRestrictionType() == FuzzySystem.RestrictionType.CORRESPONDENCE;
+        assert low.atLambda(0.8f).practicalRestrictionType() == FuzzySystem.RestrictionType.CORRESPONDENCE_MAPPING;
+    }
+    
+    @Test
+    public void solveAll() {
+        Set<ProximityRelation> relations = Parser.parseProximityRelations(bigRelations());
+        List<Problem> problems = new ArrayList<>();
+        for (float lambda : new float[]{0.5f, 0.6f, 0.5f, 0.7f, 0.6f, 0.5f}) {
+            problems.add(new Problem(bigEquation()).proximityRelations(relations).lambda(lambda).witnesses(false));
+        }
+        // parsed separately, so only their content is equal
+        problems.add(new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.8f).witnesses(false));
+        problems.add(new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.45f).witnesses(false));
+        for (float lambda : new float[]{0.5f, 0.65f}) {
+            problems.add(new Problem("f(a(), c()) ?= g(a())").proximityRelations("a b [0.9]{} ; h f [0.7]{1 1, 1 2} ; h g [0.6]{1 1}").lambda(lambda));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Set<Solution>> batch = Problems.solveAll(problems, executor);
+            assert batch.size() == problems.size();
+            for (int idx = 0; idx < problems.size(); idx++) {
+                assert TestUtils.generalizations(batch.get(idx)).equals(TestUtils.generalizations(problems.get(idx).solve()));
+            }
+            BatchResult detailed = Problems.solveAllDetailed(problems, executor);
+            assert detailed.problemCount() == problems.size();
+            assert detailed.sharedFuzzySystems == 2;
+            assert detailed.throughput() > 0;
+            assert detailed.stats().get(SolveStats.Metric.CONFIGS_EXPLORED) >= problems.size();
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void depthFirst() {
+        Problem breadthFirst = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false);
+        Problem depthFirst = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .searchStrategy(Problem.SearchStrategy.DEPTH_FIRST);
+        assert TestUtils.generalizations(TestUtils.verify(breadthFirst)).equals(TestUtils.generalizations(TestUtils.verify(depthFirst)));
+    }
+    
+    @Test
+    public void topK() {
+        Problem all = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false);
+        Problem bestFirst = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .searchStrategy(Problem.SearchStrategy.BEST_FIRST);
+        Set<Solution> allSolutions = TestUtils.verify(all);
+        assert TestUtils.generalizations(allSolutions).equals(TestUtils.generalizations(TestUtils.verify(bestFirst)));
+        
+        List<Float> degrees = allSolutions.stream()
+                .map(solution -> Math.min(solution.alpha1, solution.alpha2))
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        for (int k : new int[]{1, 5, 20, degrees.size() + 1}) {
+            Problem topK = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false).topK(k);
+            List<Float> topDegrees = TestUtils.verify(topK).stream()
+                    .map(solution -> Math.min(solution.alpha1, solution.alpha2))
+                    .sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+            assert topDegrees.equals(degrees.subList(0, Math.min(k, degrees.size())));
+        }
+        
+        List<Float> streamed = bestFirst.solveStream()
+                .map(solution -> Math.min(solution.alpha1, solution.alpha2))
+                .collect(Collectors.toList());
+        assert streamed.equals(degrees);
+    }
+    
+    @Test
+    public void limits() {
+        Set<Solution> all = TestUtils.verify(new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false));
+        Set<String> allGeneralizations = TestUtils.generalizations(all);
+        
+        SolveResult unlimited = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .timeLimit(Duration.ofMinutes(10)).solveDetailed();
+        assert unlimited.isComplete();
+        assert TestUtils.generalizations(unlimited.solutions).equals(allGeneralizations);
+        
+        for (int parallelism : new int[]{1, 4}) {
+            Problem limited = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                    .parallelism(parallelism).maxConfigs(10);
+            SolveResult result = limited.solveDetailed();
+            assert result.limitReached == SolveResult.Limit.CONFIGS;
+            assert result.solutions.size() < all.size();
+            assert allGeneralizations.containsAll(TestUtils.generalizations(result.solutions));
+            assertThrows(IllegalStateException.class, limited::solve);
+        }
+        
+        SolveResult states = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .maxStates(100).solveDetailed();
+        assert states.limitReached == SolveResult.Limit.STATES;
+        assert allGeneralizations.containsAll(TestUtils.generalizations(states.solutions));
+        
+        SolveResult time = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .timeLimit(Duration.ZERO).solveDetailed();
+        assert time.limitReached == SolveResult.Limit.TIME;
+        assert time.solutions.isEmpty();
+        
+        AtomicInteger polls = new AtomicInteger();
+        SolveResult cancelled = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .cancellation(() -> polls.incrementAndGet() > 200).solveDetailed();
+        assert cancelled.limitReached == SolveResult.Limit.CANCELLED;
+        assert allGeneralizations.containsAll(TestUtils.generalizations(cancelled.solutions));
+        
+        Problem streamed = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false).maxConfigs(10);
+        assertThrows(IllegalStateException.class, () -> streamed.solveStream().count());
+    }
+    
+    @Test
+    public void stream() {
+        Problem problem = new Problem(bigEquation()).proximityRelations(bigRelations()).lambda(0.5f).witnesses(false)
+                .searchStrategy(Problem.SearchStrategy.DEPTH_FIRST);
+        Set<Solution> streamed = problem.solveStream().collect(Collectors.toSet());
+        assert TestUtils.generalizations(problem.solve()).equals(TestUtils.generalizations(streamed));
+        assert problem.solveStream().findFirst().isPresent();
+        
+        // the stream only explores as far as it's consumed
+        Algorithm first = new Algorithm(problem);
+        assert first.stream().findFirst().isPresent();
+        long exploredByFirst = first.stats().get(SolveStats.Metric.CONFIGS_EXPLORED);
+        long exploredByAll = new Algorithm(problem).runDetailed().stats.get(SolveStats.Metric.CONFIGS_EXPLORED);
+        assert exploredByFirst > 0 && exploredByFirst < exploredByAll;
+        
+        // ... and reports the run as finished once it's exhausted
+        List<SolveResult> finished = new ArrayList<>();
+        SolverListener listener = new SolverListener() {
+            @Override
+            public void finished(SolveResult result) {
+                finished.add(result);
+            }
+        };
+        problem.listener(listener);
+        assert problem.solveStream().findFirst().isPresent();
+        assert finished.isEmpty();
+        Set<Solution> all = problem.solveStream().collect(Collectors.toSet());
+        assert finished.size() == 1 && finished.get(0).isComplete() && finished.get(0).solutions.equals(all);
+        assert finished.get(0).stats.get(SolveStats.Metric.CONFIGS_EXPLORED) == exploredByAll;
+    }
+    
     // @Test
     public void benchmark() {
         String problem = bigEquation();
@@ -80,6 +516,49 @@ public class AlgorithmTest {
         System.out.println(System.currentTimeMillis() - startTime);
     }
     
+    @Test
+    public void mergeManyAUTs() {
+        // the pairs (a_i mod 5, b_i mod 7) repeat every 35 arguments, and a0 ~ a1 can also merge,
+        // so the solved AUTs merge into 4 * 7 groups (for 20 arguments: 19 groups)
+        for (int arity : new int[]{20, 140}) {
+            StringJoiner lhs = new StringJoiner(", ", "f(", ")"), rhs = new StringJoiner(", ", "f(", ")");
+            for (int idx = 0; idx < arity; idx++) {
+                lhs.add("a" + idx % 5 + "()");
+                rhs.add("b" + idx % 7 + "()");
+            }
+            for (int parallelism : new int[]{1, 4}) {
+                // (verifying the witnesses of the big one takes too long)
+                Problem problem = new Problem(lhs + " ?= " + rhs).proximityRelations("a0 a1 [0.6] {}").lambda(0.5f)
+                        .parallelism(parallelism).witnesses(arity <= 20);
+                Set<Solution> solutions = TestUtils.verify(problem);
+                assert solutions.size() == 1;
+                assert Data.getAny(solutions).generalization.namedVariables().size() == (arity == 20 ? 19 : 28);
+            }
+        }
+    }
+    
+    @Test
+    public void largeAlphabet() {
+        // enough symbols that the relations don't fit the dense lookup matrix
+        StringJoiner relations = new StringJoiner(" ; ");
+        for (int idx = 2; idx < 600; idx++) {
+            relations.add("a0 a" + idx + " [0.8] {}").add("a1 a" + idx + " [0.7] {}");
+        }
+        Problem problem = new Problem("a0() ?= a1()").proximityRelations(relations.toString()).lambda(0.5f);
+        Set<Solution> solutions = TestUtils.verify(problem);
+        assert solutions.size() == 598;
+        assert Data.all(solutions, solution -> TestUtils.close(solution.alpha1, 0.8f) && TestUtils.close(solution.alpha2, 0.7f));
+    }
+    
+    @Test
+    public void mergeSeparateGroups() {
+        // the AUTs a/c and b/d merge into two separate groups, which need two separate variables
+        Problem problem = new Problem("f(a(), b(), a(), b()) ?= f(c(), d(), c(), d())").merge(true);
+        Set<Solution> solutions = TestUtils.verify(problem);
+        assert solutions.size() == 1;
+        assert Data.getAny(solutions).generalization.namedVariables().size() == 2;
+    }
+    
     // *** examples from the paper ***
     
     @Test
@@ -1,5 +1,9 @@
 package at.jku.risc.stout.aau;
 
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
+import at.jku.risc.stout.aau.impl.Parser;
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
 import at.jku.risc.stout.aau.util.Data;
 import at.jku.risc.stout.aau.util.Pair;
 import at.jku.risc.stout.aau.util.Panic;
@@ -27,6 +31,24 @@ public class InitializerTest {
                 () -> new Problem("f(a()) ?= b()").arities(Data.mapOf(Pair.of("h", 1))).proximityRelations("f h [0.5]{1 2}").solve());
     }
     
+    @Test
+    public void compiledArities() {
+        CompiledFuzzySystem compiled = new CompiledFuzzySystem(
+                Parser.parseProximityRelations("a b [0.6]{1 1} ; f g [0.7]{}"), Data.mapOf(Pair.of("f", 1)), 0.5f);
+        new Problem("a(c()) ?= b(d())").compiledFuzzySystem(compiled).lambda(0.5f).solve();
+        // higher arity than the relations imply
+        new Problem("a(c(), d()) ?= b(d())").compiledFuzzySystem(compiled).lambda(0.5f).solve();
+        assertThrows(IllegalArgumentException.class, () -> new Problem("a() ?= b(d())").compiledFuzzySystem(compiled).lambda(0.5f).solve());
+        assertThrows(IllegalArgumentException.class, () -> new Problem("f() ?= g()").compiledFuzzySystem(compiled).lambda(0.5f).solve());
+        assertThrows(IllegalArgumentException.class, () -> new Problem("f(c) ?= c()").compiledFuzzySystem(compiled).lambda(0.5f).solve());
+        assertThrows(IllegalArgumentException.class, () -> new Problem("g ?= c()").compiledFuzzySystem(compiled).lambda(0.5f).solve());
+        // λ below the compiled λ
+        assertThrows(IllegalArgumentException.class, () -> new Problem("a(c()) ?= b(d())").compiledFuzzySystem(compiled).lambda(0.4f).solve());
+        // ambiguous definitions
+        assertThrows(IllegalArgumentException.class, () -> new Problem("a() ?= b()").proximityRelations("a b [0.5]{}").compiledFuzzySystem(compiled));
+        assertThrows(IllegalArgumentException.class, () -> new Problem("a() ?= b()").compiledFuzzySystem(compiled).arities(Data.mapOf(Pair.of("a", 0))));
+    }
+    
     @Test
     public void badSyntax() {
         // terms
@@ -91,4 +113,34 @@ public class InitializerTest {
         solve("a() ?= b()", "a b [0.5] {}", 1.0f);
         assertThrows(IllegalArgumentException.class, () -> solve("a() ?= b()", "a b [0.5] {}", 1.000001f));
     }
+    
+    @Test
+    public void mappedVariables() {
+        assert !Parser.parseTerm("b").equals(Parser.parseTerm("b()"));
+        assert !Parser.parseTerm("f(b)").equals(Parser.parseTerm("f(b())"));
+        assert Parser.parseTerm("f(b)").equals(Parser.parseTerm("f(b)"));
+    }
+    
+    @Test
+    public void hashConsing() {
+        assert Parser.parseTerm("f(g(a(), b), a())") == Parser.parseTerm("f( g(a(),b), a() )");
+        assert Parser.parseTerm("f(b)") != Parser.parseTerm("f(b())");
+    }
+    
+    @Test
+    public void symbols() {
+        GroundTerm term = Parser.parseTerm("f(g(a()), a())");
+        assert term.symbol() == SymbolTable.id("f");
+        assert term.arguments().get(1).symbol() == term.arguments().get(0).arguments().get(0).symbol();
+        assert term.head() == SymbolTable.name(term.symbol());
+        assert SymbolTable.id(new String("f")) == term.symbol();
+        assert SymbolTable.id("f") != SymbolTable.id("g");
+        
+        // an id handed out for a transient String stays assigned to that symbol
+        int id = SymbolTable.id(new String("only_held_as_id"));
+        assert SymbolTable.name(id).equals("only_held_as_id");
+        assert SymbolTable.id("only_held_as_id") == id;
+        assert SymbolTable.canonical(new String("only_held_as_id")) == SymbolTable.name(id);
+        assert SymbolTable.name(term.symbol()) == term.head();
+    }
 }
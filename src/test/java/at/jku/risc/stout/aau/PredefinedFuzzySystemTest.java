@@ -1,8 +1,19 @@
 package at.jku.risc.stout.aau;
 
+import at.jku.risc.stout.aau.impl.Algorithm;
+import at.jku.risc.stout.aau.impl.CompiledFuzzySystem;
 import at.jku.risc.stout.aau.impl.Parser;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.term.SymbolTable;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.Data;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
 public class PredefinedFuzzySystemTest {
     @Test
     public void flippedRelationsAreSymmetric() {
@@ -13,6 +24,48 @@ public class PredefinedFuzzySystemTest {
         }
     }
     
+    @Test
+    public void flatArgMapping() {
+        for (String relationString : AlgorithmTest.bigRelations().split(";")) {
+            ProximityRelation relation = Parser.parseProximityRelation(relationString);
+            for (ProximityRelation r : new ProximityRelation[]{relation, relation.flipped()}) {
+                for (int idx = 0; idx < r.argMapping.size(); idx++) {
+                    List<Integer> flat = new ArrayList<>();
+                    for (int n = 0; n < r.mappedArgCount(idx); n++) {
+                        flat.add(r.mappedArg(idx, n));
+                    }
+                    assert flat.equals(new ArrayList<>(r.argMapping.get(idx)));
+                }
+                assert r.mappedArgCount(r.argMapping.size()) == 0;
+            }
+        }
+    }
+    
+    @Test
+    public void compatibility() {
+        // a ~ b ~ c, d ~ e; the large alphabet doesn't fit the precomputed compatibility bits
+        for (int padding : new int[]{0, 600}) {
+            StringJoiner relations = new StringJoiner(" ; ").add("a b [0.8] {}").add("b c [0.7] {}").add("d e [0.9] {}");
+            for (int idx = 0; idx < padding; idx++) {
+                relations.add("p" + idx + " q" + idx + " [0.5] {}");
+            }
+            CompiledFuzzySystem compiled = new CompiledFuzzySystem(Parser.parseProximityRelations(relations.toString()), 0.5f);
+            int a = SymbolTable.id("a"), b = SymbolTable.id("b"), c = SymbolTable.id("c"), d = SymbolTable.id("d"), e = SymbolTable.id("e");
+            assert compiled.compatible(a, a) && compiled.compatible(a, c) && compiled.compatible(c, a) && compiled.compatible(b, c);
+            assert compiled.compatible(d, e);
+            assert !compiled.compatible(a, d) && !compiled.compatible(c, e);
+        }
+        Algorithm algorithm = new Algorithm(new Problem("f(a(), d()) ?= f(c(), e())").lambda(0.5f)
+                .proximityRelations("a b [0.8] {} ; b c [0.7] {} ; d e [0.9] {}"));
+        assert algorithm.consistent(terms("a()", "c()"));
+        assert !algorithm.consistent(terms("a()", "b()", "e()"));
+        assert !algorithm.consistent(terms("f(a(), d())", "f(c(), a())"));
+    }
+    
+    private static ArraySet<GroundishTerm> terms(String... terms) {
+        return ArraySet.of(Data.mapToList(Arrays.asList(terms), Parser::parseTerm));
+    }
+    
     private static boolean symmetric(ProximityRelation forward) {
         ProximityRelation flipped = forward.flipped();
         if (forward.f != flipped.g || forward.g != flipped.f || forward.proximity != flipped.proximity) {
@@ -1,13 +1,16 @@
 package at.jku.risc.stout.aau;
 
 import at.jku.risc.stout.aau.impl.Algorithm;
+import at.jku.risc.stout.aau.impl.Consistency;
 import at.jku.risc.stout.aau.term.GroundishTerm;
 import at.jku.risc.stout.aau.util.ArraySet;
 import at.jku.risc.stout.aau.util.Data;
 import at.jku.risc.stout.aau.util.Pair;
 
+import java.math.BigInteger;
 import java.util.Collections;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class TestUtils {
     public static Set<Solution> verify(Problem problem) {
@@ -22,18 +25,21 @@ public class TestUtils {
                         && v_named.equals(solution.rhs.substitutions.keySet());
                 
                 Pair<Set<GroundishTerm>, Set<GroundishTerm>> enumerated = solution.enumerate();
+                Pair<BigInteger, BigInteger> counted = solution.countProximates();
+                assert counted.left.intValueExact() == enumerated.left.size() && counted.right.intValueExact() == enumerated.right.size();
 
+                // (checked without the solver's consistency shortcuts, which are what we're testing here)
                 // all substitutions should lead to proximates of the problem terms
-                assert Data.all(enumerated.left, groundTerm -> algorithm.consistent(new ArraySet<>(groundTerm, problem.getEquation().left)));
-                assert Data.all(enumerated.right, groundTerm -> algorithm.consistent(new ArraySet<>(groundTerm, problem.getEquation().right)));
+                assert Data.all(enumerated.left, groundTerm -> Consistency.unoptimized(algorithm, new ArraySet<>(groundTerm, problem.getEquation().left)));
+                assert Data.all(enumerated.right, groundTerm -> Consistency.unoptimized(algorithm, new ArraySet<>(groundTerm, problem.getEquation().right)));
                 
                 if (!Collections.disjoint(enumerated.left, enumerated.right)) {
                     // there can be no common terms between left and right - unless we found a fully substituted generalization
                     GroundishTerm.force(solution.generalization);
                 } else {
                     // there are some substitutions, so check there wasn't a more specific generalization
-                    assert Data.none(enumerated.left, groundTerm -> algorithm.consistent(new ArraySet<>(groundTerm, problem.getEquation().right)));
-                    assert Data.none(enumerated.right, groundTerm -> algorithm.consistent(new ArraySet<>(groundTerm, problem.getEquation().left)));
+                    assert Data.none(enumerated.left, groundTerm -> Consistency.unoptimized(algorithm, new ArraySet<>(groundTerm, problem.getEquation().right)));
+                    assert Data.none(enumerated.right, groundTerm -> Consistency.unoptimized(algorithm, new ArraySet<>(groundTerm, problem.getEquation().left)));
                 }
             }
         }
@@ -41,6 +47,15 @@ public class TestUtils {
         return solutions;
     }
     
+    /**
+     * Comparable representation of a solution set, since {@linkplain Solution Solutions} only have identity equality.
+     */
+    public static Set<String> generalizations(Set<Solution> solutions) {
+        return solutions.stream()
+                .map(solution -> solution.generalization + " " + solution.alpha1 + " " + solution.alpha2)
+                .collect(Collectors.toSet());
+    }
+    
     public static boolean close(double a, double b) {
         return Math.abs(a - b) < 0.00001f * Math.abs(a + b) / 2;
     }
@@ -0,0 +1,315 @@
+package at.jku.risc.stout.aau;
+
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.term.TermFactory;
+import at.jku.risc.stout.aau.util.Panic;
+
+import java.util.*;
+
+/**
+ * Seeded generator of random problems, for studying how the {@linkplain at.jku.risc.stout.aau.impl.Algorithm} scales.
+ * <br><br>
+ * The alphabet consists of the symbols <b>s0</b>, <b>s1</b>, ... with arities drawn from {@linkplain WorkloadGenerator#arities(double...)}
+ * (<b>s0</b> is always a constant, so every term can be finished). The symbols of each arity are split into proximity classes
+ * of {@linkplain WorkloadGenerator#classSize(int)}, and every two symbols of a class are related,
+ * with an argument mapping of the {@linkplain WorkloadGenerator#restriction(FuzzySystem.RestrictionType) requested type}.
+ * <br><br>
+ * The left side of each equation is a random term. The right side is a proximate of it: each symbol is swapped for a random one
+ * of its class and the arguments are moved along the argument mapping. Positions which the mapping leaves open are filled with
+ * random terms, and each sub-term is replaced by a random term with probability {@linkplain WorkloadGenerator#noise(double)}.
+ * <br><br>
+ * The same seed and settings always give the same {@linkplain Workload Workloads}.
+ */
+public class WorkloadGenerator {
+    private final long seed;
+    private int alphabet = 20;
+    private double[] arityWeights = {1, 2, 2, 1};
+    private int depth = 4;
+    private int classSize = 3;
+    private ProximitySampler proximities = ProximitySampler.uniform(0.5f, 1.0f);
+    private FuzzySystem.RestrictionType restriction = FuzzySystem.RestrictionType.CORRESPONDENCE_MAPPING;
+    private double noise = 0.1;
+    
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * @param symbols default: <b>20</b>
+     */
+    public WorkloadGenerator alphabet(int symbols) {
+        if (symbols < 1) {
+            throw Panic.arg("The alphabet needs at least one symbol, but got %s", symbols);
+        }
+        this.alphabet = symbols;
+        return this;
+    }
+    
+    /**
+     * Relative weights of the arities: symbol <b>s</b> gets arity <b>i</b> with probability <b>weights[i] / sum(weights)</b>.
+     *
+     * @param weights default: <b>1, 2, 2, 1</b>
+     */
+    public WorkloadGenerator arities(double... weights) {
+        if (weights.length == 0 || Arrays.stream(weights).anyMatch(weight -> weight < 0) || Arrays.stream(weights).sum() <= 0) {
+            throw Panic.arg("Arity weights must be non-negative, with a positive sum: %s", Arrays.toString(weights));
+        }
+        this.arityWeights = weights.clone();
+        return this;
+    }
+    
+    /**
+     * @param depth default: <b>4</b> (a constant has depth 0)
+     */
+    public WorkloadGenerator depth(int depth) {
+        if (depth < 0) {
+            throw Panic.arg("Depth must be at least 0, but got %s", depth);
+        }
+        this.depth = depth;
+        return this;
+    }
+    
+    /**
+     * @param classSize default: <b>3</b> (1 means there are no relations at all)
+     */
+    public WorkloadGenerator classSize(int classSize) {
+        if (classSize < 1) {
+            throw Panic.arg("Class size must be at least 1, but got %s", classSize);
+        }
+        this.classSize = classSize;
+        return this;
+    }
+    
+    /**
+     * The proximity of each relation is drawn uniformly from <b>[min, max]</b>.
+     *
+     * @param min default: <b>0.5</b>
+     * @param max default: <b>1.0</b>
+     */
+    public WorkloadGenerator proximities(float min, float max) {
+        return proximities(ProximitySampler.uniform(min, max));
+    }
+    
+    /**
+     * The proximity of each relation is drawn from <b>sampler</b>, which must only use the given {@linkplain Random}
+     * (so the workloads stay deterministic), and return values within <b>[0,1]</b>.
+     *
+     * @param sampler default: {@linkplain ProximitySampler#uniform(float, float) uniform(0.5, 1.0)}
+     */
+    public WorkloadGenerator proximities(ProximitySampler sampler) {
+        this.proximities = Objects.requireNonNull(sampler);
+        return this;
+    }
+    
+    /**
+     * The type of the argument mappings. The system as a whole only reaches it if the alphabet has a class of arity 2 or more
+     * (the mappings between constants are of every type).
+     *
+     * @param restriction default: {@linkplain FuzzySystem.RestrictionType#CORRESPONDENCE_MAPPING}
+     */
+    public WorkloadGenerator restriction(FuzzySystem.RestrictionType restriction) {
+        this.restriction = restriction;
+        return this;
+    }
+    
+    /**
+     * @param noise default: <b>0.1</b>
+     */
+    public WorkloadGenerator noise(double noise) {
+        if (noise < 0.0 || noise > 1.0) {
+            throw Panic.arg("Noise must be in range [0,1], but got %s", noise);
+        }
+        this.noise = noise;
+        return this;
+    }
+    
+    public Workload generate() {
+        return generate(1).get(0);
+    }
+    
+    /**
+     * @return <b>count</b> equations over the same alphabet, which all share the same relations
+     */
+    public List<Workload> generate(int count) {
+        return new Run(new Random(seed)).workloads(count);
+    }
+    
+    /**
+     * Distribution of the relations' proximities (see {@linkplain WorkloadGenerator#proximities(ProximitySampler)}).
+     */
+    @FunctionalInterface
+    public interface ProximitySampler {
+        float sample(Random random);
+        
+        static ProximitySampler uniform(float min, float max) {
+            if (min < 0.0f || max > 1.0f || min > max) {
+                throw Panic.arg("Proximities must be a range within [0,1], but got [%s,%s]", min, max);
+            }
+            return random -> min + random.nextFloat() * (max - min);
+        }
+    }
+    
+    public static class Workload {
+        public final GroundTerm lhs, rhs;
+        public final Set<ProximityRelation> relations;
+        public final Map<String, Integer> arities;
+        
+        Workload(GroundTerm lhs, GroundTerm rhs, Set<ProximityRelation> relations, Map<String, Integer> arities) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+            this.relations = relations;
+            this.arities = arities;
+        }
+        
+        /**
+         * @return a new problem with the equation, relations and arities - the other settings are up to the caller
+         */
+        public Problem problem() {
+            return new Problem(lhs, rhs).proximityRelations(relations).arities(arities);
+        }
+        
+        @Override
+        public String toString() {
+            return lhs + " ?= " + rhs;
+        }
+    }
+    
+    /**
+     * The state of one call to {@linkplain WorkloadGenerator#generate(int)}
+     */
+    private class Run {
+        final Random random;
+        final String[] names = new String[alphabet];
+        final Map<String, Integer> symbols = new HashMap<>();
+        final int[] arities = new int[alphabet];
+        final List<Integer> constants = new ArrayList<>();
+        final List<List<Integer>> classOf = new ArrayList<>();
+        // relationsOf[f][g] maps the arguments of f to those of g
+        final List<Map<Integer, ProximityRelation>> relationsOf = new ArrayList<>();
+        final Set<ProximityRelation> relations = new LinkedHashSet<>();
+        
+        Run(Random random) {
+            this.random = random;
+            for (int s = 0; s < alphabet; s++) {
+                names[s] = "s" + s;
+                symbols.put(names[s], s);
+                arities[s] = s == 0 ? 0 : sampleArity();
+                if (arities[s] == 0) {
+                    constants.add(s);
+                }
+                classOf.add(null);
+                relationsOf.add(new HashMap<>());
+            }
+            
+            Map<Integer, List<Integer>> byArity = new TreeMap<>();
+            for (int s = 0; s < alphabet; s++) {
+                byArity.computeIfAbsent(arities[s], arity -> new ArrayList<>()).add(s);
+            }
+            for (List<Integer> ofArity : byArity.values()) {
+                for (int start = 0; start < ofArity.size(); start += classSize) {
+                    List<Integer> proximityClass = ofArity.subList(start, Math.min(start + classSize, ofArity.size()));
+                    for (int f : proximityClass) {
+                        classOf.set(f, proximityClass);
+                    }
+                    for (int i = 0; i < proximityClass.size(); i++) {
+                        for (int j = i + 1; j < proximityClass.size(); j++) {
+                            relate(proximityClass.get(i), proximityClass.get(j));
+                        }
+                    }
+                }
+            }
+        }
+        
+        List<Workload> workloads(int count) {
+            Map<String, Integer> arityMap = new LinkedHashMap<>();
+            for (int s = 0; s < alphabet; s++) {
+                arityMap.put(names[s], arities[s]);
+            }
+            Set<ProximityRelation> shared = Collections.unmodifiableSet(relations);
+            Map<String, Integer> sharedArities = Collections.unmodifiableMap(arityMap);
+            
+            List<Workload> workloads = new ArrayList<>(count);
+            for (int idx = 0; idx < count; idx++) {
+                GroundTerm lhs = randomTerm(depth);
+                workloads.add(new Workload(lhs, proximate(lhs, depth), shared, sharedArities));
+            }
+            return workloads;
+        }
+        
+        int sampleArity() {
+            double sum = Arrays.stream(arityWeights).sum();
+            double pick = random.nextDouble() * sum;
+            for (int arity = 0; arity < arityWeights.length; arity++) {
+                pick -= arityWeights[arity];
+                if (pick < 0) {
+                    return arity;
+                }
+            }
+            return arityWeights.length - 1;
+        }
+        
+        void relate(int f, int g) {
+            int arity = arities[f];
+            List<Integer> permutation = new ArrayList<>();
+            for (int idx = 0; idx < arity; idx++) {
+                permutation.add(idx);
+            }
+            Collections.shuffle(permutation, random);
+            List<Set<Integer>> mapping = new ArrayList<>();
+            for (int idx = 0; idx < arity; idx++) {
+                mapping.add(new TreeSet<>(Collections.singleton(permutation.get(idx))));
+            }
+            int from = -1;
+            if (!restriction.mapping && arity >= 2) {
+                // one argument goes to two places
+                from = random.nextInt(arity);
+                mapping.get(from).add((permutation.get(from) + 1 + random.nextInt(arity - 1)) % arity);
+            }
+            if (!restriction.correspondence && arity >= 1) {
+                // another argument goes nowhere (and one of g's arguments comes from nowhere)
+                int nowhere = from == -1 ? random.nextInt(arity) : (from + 1 + random.nextInt(arity - 1)) % arity;
+                mapping.get(nowhere).clear();
+            }
+            float proximity = proximities.sample(random);
+            ProximityRelation relation = new ProximityRelation(names[f], names[g], proximity, mapping);
+            relations.add(relation);
+            relationsOf.get(f).put(g, relation);
+            relationsOf.get(g).put(f, relation.flipped());
+        }
+        
+        GroundTerm randomTerm(int depth) {
+            int f = depth == 0 ? constants.get(random.nextInt(constants.size())) : random.nextInt(alphabet);
+            List<GroundTerm> arguments = new ArrayList<>(arities[f]);
+            for (int idx = 0; idx < arities[f]; idx++) {
+                arguments.add(randomTerm(depth - 1));
+            }
+            return TermFactory.groundTerm(names[f], arguments);
+        }
+        
+        GroundTerm proximate(GroundTerm term, int depth) {
+            if (random.nextDouble() < noise) {
+                return randomTerm(depth);
+            }
+            int f = symbols.get(term.head());
+            List<Integer> proximityClass = classOf.get(f);
+            int g = proximityClass.get(random.nextInt(proximityClass.size()));
+            GroundTerm[] arguments = new GroundTerm[arities[g]];
+            ProximityRelation relation = relationsOf.get(f).get(g);
+            for (int fIdx = 0; fIdx < arities[f]; fIdx++) {
+                if (relation == null) {
+                    arguments[fIdx] = proximate(term.arguments().get(fIdx), depth - 1);
+                    continue;
+                }
+                for (int n = 0; n < relation.mappedArgCount(fIdx); n++) {
+                    arguments[relation.mappedArg(fIdx, n)] = proximate(term.arguments().get(fIdx), depth - 1);
+                }
+            }
+            for (int gIdx = 0; gIdx < arguments.length; gIdx++) {
+                if (arguments[gIdx] == null) {
+                    arguments[gIdx] = randomTerm(depth - 1);
+                }
+            }
+            return TermFactory.groundTerm(names[g], Arrays.asList(arguments));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.TestUtils;
+import at.jku.risc.stout.aau.term.SymbolTable;
+import at.jku.risc.stout.aau.util.ArraySet;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class CompiledFuzzySystemTest {
+    @Test
+    public void localIds() {
+        int[] symbols = {1_000_000, 3, 4_000_017, 5, 12, 999_999};
+        CompiledFuzzySystem.LocalIds localIds = new CompiledFuzzySystem.LocalIds(symbols);
+        for (int idx = 0; idx < symbols.length; idx++) {
+            assert localIds.get(symbols[idx]) == idx;
+        }
+        assert localIds.get(0) == -1 && localIds.get(4) == -1 && localIds.get(1_000_001) == -1;
+        // sized by the number of symbols, not by the highest id
+        assert localIds.capacity() <= 4 * symbols.length;
+        assert new CompiledFuzzySystem.LocalIds(new int[0]).get(0) == -1;
+    }
+    
+    @Test
+    public void lateSymbols() {
+        // symbols which are registered after lots of others get high ids
+        String prefix = "late" + SymbolTable.size() + "_";
+        for (int idx = 0; idx < 20_000; idx++) {
+            SymbolTable.id(prefix + idx);
+        }
+        String f = prefix + 19_998, g = prefix + 19_999;
+        CompiledFuzzySystem compiled = new CompiledFuzzySystem(
+                Parser.parseProximityRelations(String.format("%s %s [0.8] {1 1}", f, g)), 0.5f);
+        assert compiled.contains(SymbolTable.id(f)) && compiled.contains(SymbolTable.id(g));
+        assert !compiled.contains(SymbolTable.id(prefix + 0)) && !compiled.contains(SymbolTable.id("a"));
+        assert compiled.arity(SymbolTable.id(f)) == 1;
+        int[] common = compiled.commonProximateSymbols(new ArraySet<>(Parser.parseTerm(f + "(a())"), Parser.parseTerm(g + "(a())")));
+        Arrays.sort(common);
+        int[] expected = {SymbolTable.id(f), SymbolTable.id(g)};
+        Arrays.sort(expected);
+        assert Arrays.equals(common, expected);
+        
+        String equation = String.format("%s(a()) ?= %s(b())", f, g);
+        Problem shared = new Problem(equation).compiledFuzzySystem(compiled).lambda(0.5f);
+        Problem fresh = new Problem(equation).proximityRelations(String.format("%s %s [0.8] {1 1}", f, g)).lambda(0.5f);
+        assert TestUtils.generalizations(TestUtils.verify(shared)).equals(TestUtils.generalizations(TestUtils.verify(fresh)));
+    }
+}
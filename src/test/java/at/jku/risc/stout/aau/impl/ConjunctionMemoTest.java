@@ -0,0 +1,33 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.SolveStats;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import at.jku.risc.stout.aau.util.Pair;
+import org.junit.jupiter.api.Test;
+
+public class ConjunctionMemoTest {
+    @Test
+    public void differentFreshVar() {
+        // f and g have two common proximates, so the conjunction branches and uses up variables in both branches
+        Problem problem = new Problem("f(a(), b()) ?= g(a(), b())")
+                .proximityRelations("f h [0.8] {1 1, 2 2} ; g h [0.7] {1 1, 2 2} ; f k [0.6] {1 1} ; g k [0.9] {1 1}").lambda(0.5f);
+        ArraySet<GroundishTerm> terms = new ArraySet<>(Parser.parseTerm("f(a(), b())"), Parser.parseTerm("g(a(), b())"));
+        
+        Algorithm memoized = new Algorithm(problem);
+        Pair<ArraySet<GroundishTerm>, Integer> first = memoized.conjoin(terms, 1);
+        Pair<ArraySet<GroundishTerm>, Integer> second = memoized.conjoin(terms, 5);
+        assert memoized.stats().get(SolveStats.Metric.CONJUNCTION_MEMO_HITS) == 1;
+        assert memoized.stats().get(SolveStats.Metric.CONJUNCTION_MEMO_MISSES) == 1;
+        
+        // the hit matches computing the conjunction from scratch at the second fresh variable
+        Algorithm unmemoized = new Algorithm(problem);
+        Pair<ArraySet<GroundishTerm>, Integer> expected = unmemoized.conjoin(terms, 5);
+        assert unmemoized.stats().get(SolveStats.Metric.CONJUNCTION_MEMO_HITS) == 0;
+        assert second.left.equals(expected.left) && second.right.equals(expected.right);
+        assert first.left.equals(second.left);
+        assert first.right - 1 == second.right - 5 && second.right > 5;
+        assert second.left.size() == 2;
+    }
+}
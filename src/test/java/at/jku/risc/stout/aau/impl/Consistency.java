@@ -0,0 +1,13 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+
+/**
+ * Gives the tests outside this package access to the {@linkplain Algorithm}'s reference consistency check.
+ */
+public class Consistency {
+    public static boolean unoptimized(Algorithm algorithm, ArraySet<GroundishTerm> terms) {
+        return algorithm.consistentUnoptimized(terms);
+    }
+}
@@ -0,0 +1,43 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.AlgorithmTest;
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.term.GroundTerm;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConsistencyTest {
+    @Test
+    public void pairwiseCompatible() {
+        Problem problem = new Problem(AlgorithmTest.bigEquation()).proximityRelations(AlgorithmTest.bigRelations()).lambda(0.5f);
+        Algorithm algorithm = new Algorithm(problem);
+        List<GroundTerm> subterms = new ArrayList<>();
+        collectSubterms(problem.getEquation().left, subterms);
+        collectSubterms(problem.getEquation().right, subterms);
+        
+        int rejected = 0;
+        for (GroundTerm a : subterms) {
+            for (GroundTerm b : subterms) {
+                ArraySet<GroundishTerm> terms = new ArraySet<>(a, b);
+                boolean consistent = algorithm.consistentUnoptimized(terms);
+                if (!algorithm.pairwiseCompatible(terms)) {
+                    rejected++;
+                    assert !consistent;
+                }
+                assert algorithm.consistent(terms) == consistent;
+            }
+        }
+        assert rejected > 0;
+    }
+    
+    private static void collectSubterms(GroundTerm term, List<GroundTerm> subterms) {
+        subterms.add(term);
+        for (GroundTerm argument : term.arguments()) {
+            collectSubterms(argument, subterms);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.AlgorithmTest;
+import at.jku.risc.stout.aau.Problem;
+import at.jku.risc.stout.aau.SolveResult;
+import at.jku.risc.stout.aau.SolveStats;
+import at.jku.risc.stout.aau.TestUtils;
+import at.jku.risc.stout.aau.term.GroundishTerm;
+import at.jku.risc.stout.aau.util.ArraySet;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DecompositionMemoTest {
+    @Test
+    public void repeatedSubproblems() {
+        // the same g(..) ?= h(..) comes up once per argument (under a different variable each time), and again in every branch
+        String equation = "f(g(a(), b()), g(a(), b()), g(a(), b())) ?= f(h(c(), d()), h(c(), d()), h(c(), d()))";
+        String relations = "g h [0.8] {1 1, 2 2} ; g k [0.7] {1 1} ; h k [0.9] {1 1} ; a c [0.6] {}";
+        for (Problem problem : new Problem[]{
+                new Problem(equation).proximityRelations(relations).lambda(0.5f),
+                new Problem(AlgorithmTest.bigEquation()).proximityRelations(AlgorithmTest.bigRelations()).lambda(0.5f).witnesses(false)}) {
+            for (int parallelism : new int[]{1, 4}) {
+                problem.parallelism(parallelism);
+                SolveResult memoized = new Algorithm(problem).runDetailed();
+                SolveResult unmemoized = new Algorithm(problem).withoutDecompositionMemo().runDetailed();
+                
+                assert memoized.stats.get(SolveStats.Metric.DECOMPOSITION_MEMO_HITS) > 0;
+                assert unmemoized.stats.get(SolveStats.Metric.DECOMPOSITION_MEMO_HITS) == 0;
+                assert memoized.stats.get(SolveStats.Metric.DECOMPOSE) == unmemoized.stats.get(SolveStats.Metric.DECOMPOSE);
+                assert TestUtils.generalizations(memoized.solutions).equals(TestUtils.generalizations(unmemoized.solutions));
+            }
+        }
+    }
+    
+    @Test
+    public void differentVariable() {
+        ArraySet<GroundishTerm> T1 = ArraySet.singleton(Parser.parseTerm("g(a(), b())"));
+        ArraySet<GroundishTerm> T2 = ArraySet.singleton(Parser.parseTerm("h(c(), d())"));
+        DecompositionMemo memo = new DecompositionMemo();
+        AtomicInteger computed = new AtomicInteger();
+        DecompositionMemo.Outcome first = memo.memorized(new AUT(1, T1, T2), 1.0f, 0.9f, () -> {
+            computed.incrementAndGet();
+            return DecompositionMemo.Outcome.mappedVariable(null);
+        });
+        // same terms and alphas under another variable
+        DecompositionMemo.Outcome second = memo.memorized(new AUT(7, T1, T2), 1.0f, 0.9f, () -> {
+            computed.incrementAndGet();
+            return DecompositionMemo.Outcome.mappedVariable(null);
+        });
+        assert first == second && computed.get() == 1;
+        assert memo.hits() == 1 && memo.misses() == 1;
+        
+        // ... but other alphas are a different subproblem
+        memo.memorized(new AUT(1, T1, T2), 0.9f, 0.9f, () -> {
+            computed.incrementAndGet();
+            return DecompositionMemo.Outcome.mappedVariable(null);
+        });
+        assert computed.get() == 2 && memo.misses() == 2;
+    }
+}
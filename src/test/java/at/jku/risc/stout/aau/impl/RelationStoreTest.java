@@ -0,0 +1,109 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.ProximityRelation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class RelationStoreTest {
+    @Test
+    public void largeAlphabet() {
+        // too many symbols for the bitsets, so the default store intersects the sorted rows
+        int size = RelationStore.BITSET_MAX_SYMBOLS + 808;
+        List<List<RelationStore.Slot>> classes = randomClasses(size, 6, new Random(42));
+        RelationStore sortedRows = RelationStore.of(classes);
+        RelationStore bitsets = RelationStore.of(classes, 0, Integer.MAX_VALUE);
+        assertSame(sortedRows, bitsets, new Random(7));
+        assertSame(sortedRows.above(0.7f), bitsets.above(0.7f), new Random(7));
+    }
+    
+    @Test
+    public void smallAlphabet() {
+        // the default store uses the dense matrix and the precomputed compatibility bits
+        int size = RelationStore.DENSE_MAX_SYMBOLS - 12;
+        List<List<RelationStore.Slot>> classes = randomClasses(size, 4, new Random(42));
+        RelationStore dense = RelationStore.of(classes);
+        RelationStore sortedRows = RelationStore.of(classes, 0, 0);
+        assertSame(dense, sortedRows, new Random(7));
+        assertSame(dense.above(0.7f), sortedRows.above(0.7f), new Random(7));
+    }
+    
+    /**
+     * Every symbol is related to itself, and to about <b>degree</b> random others (symmetrically).
+     */
+    private static List<List<RelationStore.Slot>> randomClasses(int size, int degree, Random random) {
+        List<Set<Integer>> related = new ArrayList<>();
+        for (int f = 0; f < size; f++) {
+            related.add(new HashSet<>(Collections.singleton(f)));
+        }
+        for (int f = 0; f < size; f++) {
+            for (int edge = 0; edge < degree / 2; edge++) {
+                int g = random.nextInt(size);
+                related.get(f).add(g);
+                related.get(g).add(f);
+            }
+        }
+        List<List<RelationStore.Slot>> classes = new ArrayList<>();
+        for (int f = 0; f < size; f++) {
+            List<RelationStore.Slot> proximityClass = new ArrayList<>();
+            for (int g : related.get(f)) {
+                float proximity = f == g ? 1.0f : proximity(f, g);
+                proximityClass.add(new RelationStore.Slot(g, new ProximityRelation("s" + f, "s" + g, proximity, Collections.emptyList())));
+            }
+            classes.add(proximityClass);
+        }
+        return classes;
+    }
+    
+    private static float proximity(int f, int g) {
+        // symmetric, and spread over [0.5, 1.0)
+        return 0.5f + ((Math.min(f, g) * 31 + Math.max(f, g)) % 50) / 100.0f;
+    }
+    
+    private static void assertSame(RelationStore store, RelationStore other, Random random) {
+        int size = store.size();
+        assert other.size() == size;
+        for (int query = 0; query < 2000; query++) {
+            // mostly sets of symbols from the same neighbourhood, so the intersections aren't all empty
+            int[] fs = new int[1 + random.nextInt(3)];
+            fs[0] = random.nextInt(size);
+            for (int idx = 1; idx < fs.length; idx++) {
+                int row = fs[random.nextInt(idx)];
+                int width = store.rowEnd(row) - store.rowStart(row);
+                fs[idx] = random.nextInt(4) == 0 ? random.nextInt(size) : store.column(store.rowStart(row) + random.nextInt(width));
+            }
+            int[] common = store.commonProximates(fs);
+            assert Arrays.equals(common, other.commonProximates(fs));
+            assert Arrays.equals(common, commonProximates(store, fs));
+            
+            int f = fs[0], g = fs[fs.length - 1];
+            assert store.compatible(f, g) == other.compatible(f, g);
+            assert store.compatible(f, g) == (store.commonProximates(new int[]{f, g}).length > 0);
+            assert store.relation(f, g) == other.relation(f, g);
+        }
+    }
+    
+    /**
+     * Reference intersection over the rows, one symbol at a time.
+     */
+    private static int[] commonProximates(RelationStore store, int[] fs) {
+        List<Integer> common = new ArrayList<>();
+        for (int slot = store.rowStart(fs[0]); slot < store.rowEnd(fs[0]); slot++) {
+            int h = store.column(slot);
+            boolean inAll = true;
+            for (int f : fs) {
+                inAll &= store.relation(f, h) != null;
+            }
+            if (inAll) {
+                common.add(h);
+            }
+        }
+        return common.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
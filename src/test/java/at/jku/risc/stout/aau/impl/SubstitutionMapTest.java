@@ -0,0 +1,73 @@
+package at.jku.risc.stout.aau.impl;
+
+import at.jku.risc.stout.aau.term.SymbolTable;
+import at.jku.risc.stout.aau.term.Term;
+import at.jku.risc.stout.aau.term.TermFactory;
+import at.jku.risc.stout.aau.term.VariableTerm;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static at.jku.risc.stout.aau.term.Anon.ANON;
+
+public class SubstitutionMapTest {
+    @Test
+    public void chained() {
+        // 1 -> f(2, 3) -> f(g(4), 3) -> f(g(a()), h(4, 4)) -> f(g(a()), h(a(), a()))
+        List<Substitution> chain = Arrays.asList(
+                new Substitution(1, f("f", var(2), var(3))),
+                new Substitution(2, f("g", var(4))),
+                new Substitution(3, f("h", var(4), var(4))),
+                new Substitution(4, Parser.parseTerm("a()")));
+        assertSameAsReplay(chain, var(1));
+        assertSameAsReplay(chain, f("k", var(1), var(3), var(1)));
+        assert Substitution.applyAll(chain, var(1)).toString().equals(Parser.parseTerm("f(g(a()), h(a(), a()))").toString());
+    }
+    
+    @Test
+    public void repeated() {
+        // once substituted, a variable is gone, so a later binding of the same variable has no effect
+        List<Substitution> substitutions = Arrays.asList(
+                new Substitution(1, f("f", var(2), var(2))),
+                new Substitution(2, Parser.parseTerm("b()")),
+                new Substitution(1, Parser.parseTerm("c()")),
+                new Substitution(2, Parser.parseTerm("d()")));
+        assertSameAsReplay(substitutions, var(1));
+        assertSameAsReplay(substitutions, f("g", var(1), var(2), var(1)));
+        assert Substitution.applyAll(substitutions, var(1)).toString().equals(Parser.parseTerm("f(b(), b())").toString());
+    }
+    
+    @Test
+    public void anon() {
+        List<Substitution> substitutions = Arrays.asList(
+                new Substitution(1, f("f", var(2), ANON, var(3))),
+                new Substitution(2, ANON),
+                new Substitution(3, f("g", ANON, var(4))));
+        assertSameAsReplay(substitutions, var(1));
+        assertSameAsReplay(substitutions, f("h", ANON, var(1), var(4)));
+        
+        // unbound variables stay as they are, and terms without bound variables are reused
+        Term untouched = f("h", ANON, var(5), Parser.parseTerm("a()"));
+        assert new SubstitutionMap(substitutions).apply(untouched) == untouched;
+        assert Substitution.applyAll(Collections.emptyList(), untouched) == untouched;
+    }
+    
+    private static void assertSameAsReplay(List<Substitution> substitutions, Term term) {
+        Term replayed = term;
+        for (Substitution substitution : substitutions) {
+            replayed = substitution.apply(replayed);
+        }
+        assert Substitution.applyAll(substitutions, term).equals(replayed);
+        assert new SubstitutionMap(substitutions).apply(term).equals(replayed);
+    }
+    
+    private static VariableTerm var(int var) {
+        return new VariableTerm(var);
+    }
+    
+    private static Term f(String head, Term... arguments) {
+        return TermFactory.functionTerm(SymbolTable.id(head), Arrays.asList(arguments));
+    }
+}
@@ -0,0 +1,79 @@
+package at.jku.risc.stout.aau.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BoundedCacheTest {
+    @Test
+    public void minimumSize() {
+        // at least one entry per stripe
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<Integer, Integer>(15));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<Integer, Integer>(0));
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(16);
+        cache.put(1, 1);
+        assert cache.get(1) == 1;
+    }
+    
+    @Test
+    public void evictsLeastRecentlyUsedPerStripe() {
+        // 16 stripes of 4 entries; small Integer keys which are equal mod 16 share a stripe
+        BoundedCache<Integer, String> cache = new BoundedCache<>(64);
+        for (int key : new int[]{0, 16, 32, 48}) {
+            cache.put(key, "v" + key);
+        }
+        cache.put(1, "v1");
+        assert cache.get(0).equals("v0"); // 0 is now the most recently used of its stripe
+        cache.put(64, "v64");
+        
+        assert cache.get(16) == null;
+        assert cache.get(0).equals("v0") && cache.get(32).equals("v32") && cache.get(48).equals("v48") && cache.get(64).equals("v64");
+        // the other stripe isn't affected
+        assert cache.get(1).equals("v1");
+        assert cache.size() == 5;
+        
+        // replacing a value doesn't grow the stripe
+        cache.put(32, "w32");
+        assert cache.get(32).equals("w32") && cache.size() == 5;
+    }
+    
+    @Test
+    public void bounded() throws InterruptedException {
+        for (int maxSize : new int[]{16, 20, 100, 1 << 10}) {
+            BoundedCache<Integer, Integer> cache = new BoundedCache<>(maxSize);
+            for (int key = 0; key < 10 * maxSize; key++) {
+                cache.put(key, key);
+                assert cache.size() <= maxSize;
+            }
+            // the most recent key of each stripe is always kept
+            assert cache.get(10 * maxSize - 1) == 10 * maxSize - 1;
+        }
+        
+        BoundedCache<Integer, Integer> shared = new BoundedCache<>(256);
+        AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 100_000;
+            threads.add(new Thread(() -> {
+                for (int key = offset; key < offset + 20_000; key++) {
+                    shared.put(key, key);
+                    Integer cached = shared.get(key - 3);
+                    if (cached != null && cached != key - 3) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assert wrong.get() == 0 && shared.size() <= 256;
+    }
+}